@@ -0,0 +1,110 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.benchmark;
+
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.ConnectionService;
+import in.rishikeshdarandale.gitlab.core.Constants;
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+import in.rishikeshdarandale.gitlab.model.Project;
+import in.rishikeshdarandale.gitlab.model.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of the {@link ConnectionService} against a {@link StubGitlabServer}.
+ *
+ * Run it using <code>gradle jmh</code>, the gc profiler is enabled by default to report the allocation
+ * rate, other options can be passed with <code>-PjmhArgs="..."</code>.
+ *
+ * @author Rishikesh Darandale
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class ConnectionServiceBenchmark {
+    @Param({"0", "5"})
+    public long latencyMillis;
+
+    @Param({"20", "100"})
+    public int perPage;
+
+    @Param({"64", "1024"})
+    public int descriptionLength;
+
+    private StubGitlabServer server;
+    private ConnectionService connectionService;
+    private String apiUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, AuthenticationException {
+        server = new StubGitlabServer(latencyMillis, perPage, descriptionLength);
+        apiUrl = server.getApiUrl();
+        connectionService = ConnectionService.builder().build();
+        connectionService.createSession(apiUrl, "root", "password");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionService.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Project getObject() throws AuthenticationException {
+        return connectionService.getObject(null, apiUrl, Constants.PROJECTS_API_PATH + "/"
+                + ThreadLocalRandom.current().nextInt(1, 1000), Project.class, null);
+    }
+
+    @Benchmark
+    public PaginatedList<Project> getList() throws AuthenticationException {
+        MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+        queryParams.putSingle(Constants.PAGE_PARAM, ThreadLocalRandom.current().nextInt(1,
+                StubGitlabServer.TOTAL_PAGES + 1));
+        queryParams.putSingle(Constants.PER_PAGE_PARAM, perPage);
+        return connectionService.getList(null, apiUrl, Constants.PROJECTS_API_PATH, Project.class, queryParams);
+    }
+
+    @Benchmark
+    public Session createSession() throws AuthenticationException {
+        return connectionService.createSession(apiUrl, "root", "password");
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local http server answering like gitlab, used as the remote end of the benchmarks.
+ *
+ * It serves <code>POST /session</code>, <code>GET /projects/{id}</code> and <code>GET /projects</code> under
+ * the api url, with the pagination headers of gitlab. Every response is delayed by the configured latency,
+ * and the size of the payloads is driven by the number of items per page and the size of their description.
+ *
+ * @author Rishikesh Darandale
+ */
+public class StubGitlabServer implements AutoCloseable {
+    static final String API_PATH = "/api/v3";
+    static final int TOTAL_PAGES = 10;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final byte[] session;
+    private final byte[] project;
+    private final byte[] projects;
+    private final int perPage;
+
+    /**
+     * @param latencyMillis delay added to every response
+     * @param perPage number of projects returned by a list request
+     * @param descriptionLength number of characters of the description of every project
+     */
+    public StubGitlabServer(long latencyMillis, int perPage, int descriptionLength) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.perPage = perPage;
+        this.session = ("{\"id\":1,\"username\":\"root\",\"name\":\"Administrator\",\"email\":\"admin@example.com\","
+                + "\"state\":\"active\",\"private_token\":\"benchmark-token\"}").getBytes(StandardCharsets.UTF_8);
+        this.project = project(1, descriptionLength).getBytes(StandardCharsets.UTF_8);
+        StringBuilder list = new StringBuilder("[");
+        for(int id = 1; id <= perPage; id++) {
+            list.append(id == 1 ? "" : ",").append(project(id, descriptionLength));
+        }
+        this.projects = list.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        this.executor = Executors.newFixedThreadPool(64);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext(API_PATH, this::handle);
+        this.server.start();
+    }
+
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + API_PATH;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream request = exchange.getRequestBody()) {
+            while(request.read() != -1) {
+                // drain the request body so the connection can be reused
+            }
+            if(latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            String path = exchange.getRequestURI().getPath().substring(API_PATH.length());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if("POST".equals(exchange.getRequestMethod()) && "/session".equals(path)) {
+                send(exchange, 201, session);
+            } else if("/projects".equals(path)) {
+                int page = getPage(exchange.getRequestURI().getQuery());
+                exchange.getResponseHeaders().set("X-Total", String.valueOf(TOTAL_PAGES * perPage));
+                exchange.getResponseHeaders().set("X-Total-Pages", String.valueOf(TOTAL_PAGES));
+                exchange.getResponseHeaders().set("X-Per-Page", String.valueOf(perPage));
+                exchange.getResponseHeaders().set("X-Page", String.valueOf(page));
+                exchange.getResponseHeaders().set("X-Prev-Page", page > 1 ? String.valueOf(page - 1) : "");
+                exchange.getResponseHeaders().set("X-Next-Page", page < TOTAL_PAGES ? String.valueOf(page + 1) : "");
+                send(exchange, 200, projects);
+            } else if(path.startsWith("/projects/")) {
+                send(exchange, 200, project);
+            } else {
+                send(exchange, 404, "{\"message\":\"404 Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+
+    private int getPage(String query) {
+        if(query != null) {
+            for(String param : query.split("&")) {
+                if(param.startsWith("page=")) {
+                    return Integer.parseInt(param.substring("page=".length()));
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String project(int id, int descriptionLength) {
+        StringBuilder description = new StringBuilder(descriptionLength);
+        for(int i = 0; i < descriptionLength; i++) {
+            description.append((char) ('a' + i % 26));
+        }
+        return "{\"id\":" + id + ",\"name\":\"project-" + id + "\",\"path\":\"project-" + id + "\","
+                + "\"path_with_namespace\":\"group/project-" + id + "\",\"description\":\"" + description + "\","
+                + "\"default_branch\":\"master\",\"visibility_level\":20,\"archived\":false,"
+                + "\"web_url\":\"http://gitlab.example.com/group/project-" + id + "\","
+                + "\"created_at\":\"2016-06-25T10:00:00.000Z\",\"last_activity_at\":\"2016-06-26T10:00:00.000Z\","
+                + "\"namespace\":{\"id\":1,\"name\":\"group\",\"path\":\"group\"},\"star_count\":" + id
+                + ",\"forks_count\":0,\"open_issues_count\":" + (id % 7) + "}";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A response held by the {@link ResponseCache} along with the validators and the pagination headers
+ * needed to serve it again.
+ *
+ * @author Rishikesh Darandale
+ */
+class CachedResponse {
+    private final Object entity;
+    private final byte[] body;
+    private final String eTag;
+    private final String lastModified;
+    private final Map<String, String> headers;
+
+    CachedResponse(Object entity, byte[] body, String eTag, String lastModified, Map<String, String> headers) {
+        this.entity = entity;
+        this.body = body;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.headers = Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return the deserialized response, or <code>null</code> if it has only been read from the disk
+     */
+    Object getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return the raw response body, or <code>null</code> if the cache is not persistent
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+    CachedResponse withEntity(Object entity) {
+        return new CachedResponse(entity, body, eTag, lastModified, headers);
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    String getLastModified() {
+        return lastModified;
+    }
+
+    String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+}
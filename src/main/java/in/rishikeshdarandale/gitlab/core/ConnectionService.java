@@ -19,20 +19,67 @@
 package in.rishikeshdarandale.gitlab.core;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.google.common.net.UrlEscapers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import in.rishikeshdarandale.gitlab.model.PaginatedList;
 import in.rishikeshdarandale.gitlab.model.Session;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.internal.util.collection.ImmutableMultivaluedMap;
 import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.message.DeflateEncoder;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.*;
 import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  *
@@ -40,9 +87,30 @@ import java.util.List;
  */
 public class ConnectionService {
     private static final Logger LOG = LoggerFactory.getLogger(ConnectionService.class);
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final ExecutorService RETRY_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gitlab-api-retry-%d").build());
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gitlab-api-scheduler").build());
+    private static final String[] PAGINATION_HEADERS = {Constants.X_TOTAL, Constants.X_TOTAL_PAGES,
+            Constants.X_PER_PAGE, Constants.X_PAGE, Constants.X_PREVIOUS_PAGE, Constants.X_NEXT_PAGE, Constants.LINK};
+    private static final Pattern LINK_PATTERN = Pattern.compile("<([^>]*)>\\s*((?:;[^,<]*)*)");
+    private static final Pattern NEXT_REL_PATTERN = Pattern.compile(";\\s*rel\\s*=\\s*\"?([^\";]*)\"?");
+    private static final String ID_PLACEHOLDER = "{id}";
+    private static final int MAX_IDENTITIES = 1024;
+    private static final Map<Class<?>, GenericType<?>> LIST_TYPES = new ConcurrentHashMap<>();
     private static ConnectionService service;
-    private Client client;
-    private String privateToken;
+    private volatile Client client;
+    private volatile String privateToken;
+    private ScheduledFuture<?> connectionEviction;
+    private volatile ResponseCache responseCache;
+    private volatile RequestCoalescer requestCoalescer;
+    private volatile RequestRateLimiter rateLimiter;
+    private volatile RetryPolicy retryPolicy;
+    private volatile RequestListener requestListener;
+    private final Map<String, RetryPolicy> endpointRetryPolicies = new ConcurrentHashMap<>();
+    private final Map<String, WebTarget> baseTargets = new ConcurrentHashMap<>();
+    private final Map<String, Identity> identities = new ConcurrentHashMap<>();
 
     private ConnectionService(Client client) {
         this.client = client;
@@ -50,14 +118,24 @@ public class ConnectionService {
 
     public static synchronized ConnectionService getInstance() {
         if(service == null) {
-            Client client = ClientBuilder.newClient().register(JacksonFeature.class);
-            client.property(ClientProperties.CONNECT_TIMEOUT, 5000);
-            client.property(ClientProperties.READ_TIMEOUT, 5000);
+            Client client = ClientBuilder.newClient().register(JacksonFeature.class)
+                    .register(ObjectMapperProvider.class)
+                    .register(RequestMetricsInterceptor.class)
+                    .register(RequestMetricsInterceptor.Decoded.class);
+            client.property(ClientProperties.CONNECT_TIMEOUT, DEFAULT_TIMEOUT);
+            client.property(ClientProperties.READ_TIMEOUT, DEFAULT_TIMEOUT);
             service = new ConnectionService(client);
         }
         return service;
     }
 
+    /**
+     * Creates a builder to configure the http transport of a new, non shared connection service
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
     /**
      * Login to Gitlab using username and password to get the private token
      *
@@ -68,6 +146,15 @@ public class ConnectionService {
      * @throws AuthenticationException
      */
     public Session createSession(String apiUrlPrefix, String username, String password) throws AuthenticationException {
+        Session session = openSession(apiUrlPrefix, username, password);
+        privateToken = session.getPrivateToken();
+        return session;
+    }
+
+    /**
+     * Login to Gitlab without keeping the private token in this service
+     */
+    Session openSession(String apiUrlPrefix, String username, String password) throws AuthenticationException {
         LOG.info("Creating a new session for {}", username);
         Session session = null;
         if(Strings.isNullOrEmpty(apiUrlPrefix) || Strings.isNullOrEmpty(username)
@@ -87,7 +174,6 @@ public class ConnectionService {
         if(statusCode == Response.Status.CREATED.getStatusCode()) {
             LOG.info("Session successfully created for {}", username);
             session = response.readEntity(Session.class);
-            privateToken = session.getPrivateToken();
         } else {
             LOG.error("Invalid username or password provided");
             throw new AuthenticationException("Invalid username or password provided.");
@@ -112,21 +198,26 @@ public class ConnectionService {
     public <T> T getObject(String sudoUserName, String apiUrlPrefix,
                            String apiPath, Class<T> zClass,
                            MultivaluedMap<String, Object> queryParams) throws AuthenticationException{
+        return getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    <T> T getObject(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath, Class<T> zClass,
+                    MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, null, queryParams);
+    }
+
+    private <T> T getObject(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                            Class<T> zClass, JsonProjection<T> projection,
+                            MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
         if(!Strings.isNullOrEmpty(privateToken)) {
-            MultivaluedMap headers = new MultivaluedHashMap<>();
-            headers.add(Constants.PRIVATE_TOKEN_HEADER, privateToken);
-            if (!Strings.isNullOrEmpty(sudoUserName)) {
-                headers.add(Constants.SUDO_HEADER, sudoUserName);
-            }
-            Response response = doGetRequest(apiUrlPrefix, apiPath, queryParams, headers, MediaType.APPLICATION_JSON);
-            System.out.print("Response: " + response.getStatus());
-            if(response.getStatus() == Response.Status.OK.getStatusCode()) {
-                return response.readEntity(zClass);
-            } else if(response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                throw new NotFoundException();
-            } else if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
-                throw new AuthenticationException("Please use valid token");
-            }
+            return coalesce(getCoalescingKey("object", getTypeKey(zClass, projection), privateToken, sudoUserName,
+                    apiUrlPrefix, apiPath, queryParams), () -> {
+                String cacheKey = getCacheKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams,
+                        projection);
+                CachedResponse cached = getCachedResponse(cacheKey);
+                return doGetRequest(apiUrlPrefix, apiPath, queryParams, getHeaders(privateToken, sudoUserName, cached),
+                        getObjectReader(zClass, projection, cacheKey, cached), MediaType.APPLICATION_JSON);
+            });
         }
         return null;
     }
@@ -136,6 +227,27 @@ public class ConnectionService {
         return this.getObject(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams);
     }
 
+    /**
+     * Variant of {@link #getObject(String, String, String, Class, MultivaluedMap)} which only binds the fields
+     * of the projection, see {@link JsonProjection}.
+     */
+    public <T> T getObject(String sudoUserName, String apiUrlPrefix, String apiPath, JsonProjection<T> projection,
+                           MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection, queryParams);
+    }
+
+    <T> T getObject(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                    JsonProjection<T> projection, MultivaluedMap<String, Object> queryParams)
+            throws AuthenticationException {
+        return getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection.getType(), projection,
+                queryParams);
+    }
+
+    public <T> T getObject(String sudoUserName, String apiPath, JsonProjection<T> projection,
+                           MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return this.getObject(sudoUserName, Constants.GITLAB_API_URL, apiPath, projection, queryParams);
+    }
+
     /**
      *
      * @param apiUrlPrefix
@@ -146,20 +258,27 @@ public class ConnectionService {
     public <T> PaginatedList<T> getList(String sudoUserName, String apiUrlPrefix,
                                         String apiPath, Class<T> zClass,
                                         MultivaluedMap<String, Object> queryParams) throws AuthenticationException{
-        if(!Strings.isNullOrEmpty(this.getPrivateToken())) {
-            MultivaluedMap headers = new MultivaluedHashMap<>();
-            headers.add(Constants.PRIVATE_TOKEN_HEADER, privateToken);
-            if (!Strings.isNullOrEmpty(sudoUserName)) {
-                headers.add(Constants.SUDO_HEADER, sudoUserName);
-            }
-            Response response = doGetRequest(apiUrlPrefix, apiPath, queryParams, headers, MediaType.APPLICATION_JSON);
-            System.out.print("Response: " + response.getStatus());
-            if(response.getStatus() == Response.Status.OK.getStatusCode()) {
-                List<T> tList = response.readEntity(getType(zClass));
-                return getPaginatedList(tList, response);
-            } else if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
-                throw new AuthenticationException("Please use valid token");
-            }
+        return getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    <T> PaginatedList<T> getList(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                                 Class<T> zClass, MultivaluedMap<String, Object> queryParams)
+            throws AuthenticationException {
+        return getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, null, queryParams);
+    }
+
+    private <T> PaginatedList<T> getList(String privateToken, String sudoUserName, String apiUrlPrefix,
+                                         String apiPath, Class<T> zClass, JsonProjection<T> projection,
+                                         MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        if(!Strings.isNullOrEmpty(privateToken)) {
+            return coalesce(getCoalescingKey("list", getTypeKey(zClass, projection), privateToken, sudoUserName,
+                    apiUrlPrefix, apiPath, queryParams), () -> {
+                String cacheKey = getCacheKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams,
+                        projection);
+                CachedResponse cached = getCachedResponse(cacheKey);
+                return doGetRequest(apiUrlPrefix, apiPath, queryParams, getHeaders(privateToken, sudoUserName, cached),
+                        getListReader(zClass, projection, cacheKey, cached), MediaType.APPLICATION_JSON);
+            });
         }
         return null;
     }
@@ -169,12 +288,497 @@ public class ConnectionService {
         return this.getList(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams);
     }
 
+    /**
+     * Variant of {@link #getList(String, String, String, Class, MultivaluedMap)} which only binds the fields
+     * of the projection, see {@link JsonProjection}.
+     */
+    public <T> PaginatedList<T> getList(String sudoUserName, String apiUrlPrefix, String apiPath,
+                                        JsonProjection<T> projection,
+                                        MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection, queryParams);
+    }
+
+    <T> PaginatedList<T> getList(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                                 JsonProjection<T> projection, MultivaluedMap<String, Object> queryParams)
+            throws AuthenticationException {
+        return getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection.getType(), projection,
+                queryParams);
+    }
+
+    public <T> PaginatedList<T> getList(String sudoUserName, String apiPath, JsonProjection<T> projection,
+                                        MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return this.getList(sudoUserName, Constants.GITLAB_API_URL, apiPath, projection, queryParams);
+    }
+
+    /**
+     * Streaming variant of {@link #getList(String, String, String, Class, MultivaluedMap)}.
+     *
+     * The response body is parsed incrementally and every item is handed to the consumer as soon as it has
+     * been read, so at most one item of the page is held in memory at a time.
+     *
+     * @param consumer receives the items in the order returned by gitlab
+     * @return the page information with an empty item list, or <code>null</code> if session is not created
+     */
+    public <T> PaginatedList<T> streamList(String sudoUserName, String apiUrlPrefix,
+                                           String apiPath, Class<T> zClass,
+                                           MultivaluedMap<String, Object> queryParams,
+                                           Consumer<? super T> consumer) throws AuthenticationException {
+        return streamList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams, consumer);
+    }
+
+    <T> PaginatedList<T> streamList(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                                    Class<T> zClass, MultivaluedMap<String, Object> queryParams,
+                                    Consumer<? super T> consumer) throws AuthenticationException {
+        if(!Strings.isNullOrEmpty(privateToken)) {
+            return doGetRequest(apiUrlPrefix, apiPath, queryParams, getHeaders(privateToken, sudoUserName),
+                    response -> {
+                        if(response.getStatus() == Response.Status.OK.getStatusCode()) {
+                            try {
+                                JsonArrayReader.read(response.readEntity(InputStream.class), zClass, consumer);
+                            } catch (IOException e) {
+                                throw new ProcessingException(e);
+                            }
+                            return getPaginatedList(Collections.<T>emptyList(), response);
+                        }
+                        try {
+                            if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+                                throw new AuthenticationException("Please use valid token");
+                            }
+                            return null;
+                        } finally {
+                            response.close();
+                        }
+                    }, MediaType.APPLICATION_JSON);
+        }
+        return null;
+    }
+
+    public <T> PaginatedList<T> streamList(String sudoUserName, String apiPath, Class<T> zClass,
+                                           MultivaluedMap<String, Object> queryParams,
+                                           Consumer<? super T> consumer) throws AuthenticationException {
+        return this.streamList(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams, consumer);
+    }
+
+    /**
+     * Non blocking variant of {@link #getObject(String, String, String, Class, MultivaluedMap)}.
+     *
+     * The request is sent using jersey's async invoker, so no caller thread is parked on the socket.
+     * The returned future completes exceptionally with {@link NotFoundException} or
+     * {@link AuthenticationException} for 404 and 401 responses respectively.
+     *
+     * @return the future holding the object, or <code>null</code> if session is not created
+     */
+    public <T> CompletableFuture<T> getObjectAsync(String sudoUserName, String apiUrlPrefix,
+                                                   String apiPath, Class<T> zClass,
+                                                   MultivaluedMap<String, Object> queryParams) {
+        return getObjectAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    <T> CompletableFuture<T> getObjectAsync(String privateToken, String sudoUserName, String apiUrlPrefix,
+                                            String apiPath, Class<T> zClass,
+                                            MultivaluedMap<String, Object> queryParams) {
+        if(Strings.isNullOrEmpty(privateToken)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return coalesceAsync(getCoalescingKey("object", zClass.getName(), privateToken, sudoUserName, apiUrlPrefix,
+                apiPath, queryParams), () -> {
+            String cacheKey = getCacheKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+            CachedResponse cached = getCachedResponse(cacheKey);
+            return doGetRequestAsync(apiUrlPrefix, apiPath, queryParams,
+                    getHeaders(privateToken, sudoUserName, cached),
+                    getObjectReader(zClass, null, cacheKey, cached), MediaType.APPLICATION_JSON);
+        });
+    }
+
+    public <T> CompletableFuture<T> getObjectAsync(String sudoUserName, String apiPath, Class<T> zClass,
+                                                   MultivaluedMap<String, Object> queryParams) {
+        return this.getObjectAsync(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams);
+    }
+
+    /**
+     * Variant of {@link #getObjectAsync(String, String, String, Class, MultivaluedMap)} which performs the
+     * blocking request on the given executor instead of jersey's async invoker.
+     */
+    public <T> CompletableFuture<T> getObjectAsync(String sudoUserName, String apiUrlPrefix,
+                                                   String apiPath, Class<T> zClass,
+                                                   MultivaluedMap<String, Object> queryParams,
+                                                   Executor executor) {
+        return supplyAsync(() -> getObject(sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams), executor);
+    }
+
+    /**
+     * Non blocking variant of {@link #getList(String, String, String, Class, MultivaluedMap)}.
+     *
+     * @return the future holding the page, or <code>null</code> if session is not created
+     */
+    public <T> CompletableFuture<PaginatedList<T>> getListAsync(String sudoUserName, String apiUrlPrefix,
+                                                                String apiPath, Class<T> zClass,
+                                                                MultivaluedMap<String, Object> queryParams) {
+        return getListAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    <T> CompletableFuture<PaginatedList<T>> getListAsync(String privateToken, String sudoUserName,
+                                                         String apiUrlPrefix, String apiPath, Class<T> zClass,
+                                                         MultivaluedMap<String, Object> queryParams) {
+        if(Strings.isNullOrEmpty(privateToken)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return coalesceAsync(getCoalescingKey("list", zClass.getName(), privateToken, sudoUserName, apiUrlPrefix,
+                apiPath, queryParams), () -> {
+            String cacheKey = getCacheKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+            CachedResponse cached = getCachedResponse(cacheKey);
+            return doGetRequestAsync(apiUrlPrefix, apiPath, queryParams,
+                    getHeaders(privateToken, sudoUserName, cached),
+                    getListReader(zClass, null, cacheKey, cached), MediaType.APPLICATION_JSON);
+        });
+    }
+
+    public <T> CompletableFuture<PaginatedList<T>> getListAsync(String sudoUserName, String apiPath,
+                                                                Class<T> zClass,
+                                                                MultivaluedMap<String, Object> queryParams) {
+        return this.getListAsync(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams);
+    }
+
+    /**
+     * Variant of {@link #getListAsync(String, String, String, Class, MultivaluedMap)} which performs the
+     * blocking request on the given executor instead of jersey's async invoker.
+     */
+    public <T> CompletableFuture<PaginatedList<T>> getListAsync(String sudoUserName, String apiUrlPrefix,
+                                                                String apiPath, Class<T> zClass,
+                                                                MultivaluedMap<String, Object> queryParams,
+                                                                Executor executor) {
+        return supplyAsync(() -> getList(sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams), executor);
+    }
+
+    /**
+     * Fetches every page of a list api.
+     *
+     * The first page is fetched to read the <code>X-Total-Pages</code> header, the remaining pages are then
+     * fetched concurrently with at most <code>parallelism</code> requests in flight. When gitlab does not
+     * report the total pages, the pages are walked one after another using <code>X-Next-Page</code>, or the
+     * <code>Link</code> header with keyset pagination (<code>pagination=keyset</code>).
+     *
+     * @param parallelism maximum number of pages fetched at the same time
+     * @return all the items in page order, or <code>null</code> if session is not created
+     */
+    public <T> List<T> getAll(String sudoUserName, String apiUrlPrefix,
+                              String apiPath, Class<T> zClass,
+                              MultivaluedMap<String, Object> queryParams, int parallelism)
+            throws AuthenticationException {
+        return getAll(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams, parallelism);
+    }
+
+    <T> List<T> getAll(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                       Class<T> zClass, MultivaluedMap<String, Object> queryParams, int parallelism)
+            throws AuthenticationException {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1");
+        }
+        PaginatedList<T> page = getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                firstPage(queryParams));
+        if(page == null) {
+            return null;
+        }
+        List<T> tList = new ArrayList<>(page.gettList());
+        int totalPages = page.getTotalPages();
+        if(totalPages > 1) {
+            List<Integer> pageNumbers = new ArrayList<>(totalPages - 1);
+            for(int pageNumber = 2; pageNumber <= totalPages; pageNumber++) {
+                pageNumbers.add(pageNumber);
+            }
+            List<CompletableFuture<PaginatedList<T>>> pages = fanOut(pageNumbers, pageNumber ->
+                    getListAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                            withPage(queryParams, pageNumber)),
+                    parallelism);
+            for(int i = 0; i < pages.size(); i++) {
+                tList.addAll(requirePage(await(pages.get(i)), pageNumbers.get(i)).gettList());
+            }
+        } else if(totalPages == 0) {
+            int pageCount = 1;
+            for(MultivaluedMap<String, Object> pageParams = nextPage(queryParams, page); pageParams != null;
+                    pageParams = nextPage(queryParams, page)) {
+                page = requirePage(getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, pageParams),
+                        ++pageCount);
+                tList.addAll(page.gettList());
+            }
+        }
+        return tList;
+    }
+
+    public <T> List<T> getAll(String sudoUserName, String apiPath, Class<T> zClass,
+                              MultivaluedMap<String, Object> queryParams, int parallelism)
+            throws AuthenticationException {
+        return this.getAll(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams, parallelism);
+    }
+
+    /**
+     * Lazy view over all the pages of a list api, see {@link PaginatedIterable}.
+     *
+     * Nothing is requested until the returned iterable is consumed.
+     */
+    public <T> PaginatedIterable<T> getIterable(String sudoUserName, String apiUrlPrefix,
+                                                String apiPath, Class<T> zClass,
+                                                MultivaluedMap<String, Object> queryParams) {
+        return new PaginatedIterable<>(this, privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    public <T> PaginatedIterable<T> getIterable(String sudoUserName, String apiPath, Class<T> zClass,
+                                                MultivaluedMap<String, Object> queryParams) {
+        return this.getIterable(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams);
+    }
+
+    /**
+     * Counts the items of a list api without downloading them.
+     *
+     * A page of a single item is requested and only its pagination headers are read, the body is never
+     * deserialized. The count is taken from <code>X-Total</code>, or from <code>X-Total-Pages</code> which
+     * is the same number with a single item per page.
+     *
+     * @return the number of items, <code>-1</code> when gitlab does not report the totals as for very large
+     * collections, or <code>null</code> if session is not created
+     */
+    public Long count(String sudoUserName, String apiUrlPrefix, String apiPath,
+                      MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return count(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+    }
+
+    Long count(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+               MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        if(Strings.isNullOrEmpty(privateToken)) {
+            return null;
+        }
+        return coalesce(getCoalescingKey("count", Long.class.getName(), privateToken, sudoUserName, apiUrlPrefix,
+                apiPath, queryParams), () -> doGetRequest(apiUrlPrefix, apiPath, withSingleItem(queryParams),
+                getHeaders(privateToken, sudoUserName), this::readCount, MediaType.APPLICATION_JSON));
+    }
+
+    public Long count(String sudoUserName, String apiPath,
+                      MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return this.count(sudoUserName, Constants.GITLAB_API_URL, apiPath, queryParams);
+    }
+
+    /**
+     * Non blocking variant of {@link #count(String, String, String, MultivaluedMap)}, so that several counts
+     * can be sent at the same time.
+     */
+    public CompletableFuture<Long> countAsync(String sudoUserName, String apiUrlPrefix, String apiPath,
+                                              MultivaluedMap<String, Object> queryParams) {
+        return countAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+    }
+
+    CompletableFuture<Long> countAsync(String privateToken, String sudoUserName, String apiUrlPrefix,
+                                       String apiPath, MultivaluedMap<String, Object> queryParams) {
+        if(Strings.isNullOrEmpty(privateToken)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return coalesceAsync(getCoalescingKey("count", Long.class.getName(), privateToken, sudoUserName, apiUrlPrefix,
+                apiPath, queryParams), () -> doGetRequestAsync(apiUrlPrefix, apiPath, withSingleItem(queryParams),
+                getHeaders(privateToken, sudoUserName), this::readCount, MediaType.APPLICATION_JSON));
+    }
+
+    public CompletableFuture<Long> countAsync(String sudoUserName, String apiPath,
+                                              MultivaluedMap<String, Object> queryParams) {
+        return this.countAsync(sudoUserName, Constants.GITLAB_API_URL, apiPath, queryParams);
+    }
+
+    /**
+     * Reactive Streams publisher of all the items of a list api, see {@link PaginatedPublisher}.
+     *
+     * Nothing is requested until a subscriber signals demand.
+     *
+     * @param pagesAhead number of pages buffered ahead of the subscriber demand
+     */
+    public <T> PaginatedPublisher<T> getPublisher(String sudoUserName, String apiUrlPrefix, String apiPath,
+                                                  Class<T> zClass, MultivaluedMap<String, Object> queryParams,
+                                                  int pagesAhead) {
+        return new PaginatedPublisher<>(this, privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                queryParams, pagesAhead);
+    }
+
+    public <T> PaginatedPublisher<T> getPublisher(String sudoUserName, String apiPath, Class<T> zClass,
+                                                  MultivaluedMap<String, Object> queryParams, int pagesAhead) {
+        return this.getPublisher(sudoUserName, Constants.GITLAB_API_URL, apiPath, zClass, queryParams, pagesAhead);
+    }
+
+    /**
+     * Fetches an object for every id, e.g. <code>projects/{id}</code> for a list of project ids, with at most
+     * <code>concurrency</code> requests in flight.
+     *
+     * Failures are reported per id instead of failing the batch: a missing object or a rejected token only
+     * shows up in the {@link ItemResult} of that id.
+     *
+     * @param apiPathTemplate api path holding an <code>{id}</code> placeholder, replaced by the url encoded id
+     * @param concurrency maximum number of requests in flight
+     * @return one result per id in the order of the ids, or <code>null</code> if session is not created
+     * @throws ProcessingException when the thread is interrupted, the rest of the batch is then cancelled
+     */
+    public <T> List<ItemResult<T>> getObjects(String sudoUserName, String apiUrlPrefix, String apiPathTemplate,
+                                              Collection<?> ids, Class<T> zClass,
+                                              MultivaluedMap<String, Object> queryParams, int concurrency) {
+        return getObjects(privateToken, sudoUserName, apiUrlPrefix, apiPathTemplate, ids, zClass, queryParams,
+                concurrency);
+    }
+
+    <T> List<ItemResult<T>> getObjects(String privateToken, String sudoUserName, String apiUrlPrefix,
+                                       String apiPathTemplate, Collection<?> ids, Class<T> zClass,
+                                       MultivaluedMap<String, Object> queryParams, int concurrency) {
+        if(concurrency < 1) {
+            throw new IllegalArgumentException("concurrency should be at least 1");
+        }
+        if(apiPathTemplate == null || !apiPathTemplate.contains(ID_PLACEHOLDER)) {
+            throw new IllegalArgumentException("Api path should contain " + ID_PLACEHOLDER);
+        }
+        if(Strings.isNullOrEmpty(privateToken)) {
+            return null;
+        }
+        List<Object> keys = new ArrayList<>(ids);
+        List<CompletableFuture<T>> futures = fanOut(keys, id -> {
+            String apiPath = apiPathTemplate.replace(ID_PLACEHOLDER,
+                    UrlEscapers.urlPathSegmentEscaper().escape(String.valueOf(id)));
+            try {
+                return getObjectAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+            } catch (RuntimeException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }, concurrency);
+        List<ItemResult<T>> results = new ArrayList<>(keys.size());
+        for(int i = 0; i < keys.size(); i++) {
+            try {
+                results.add(ItemResult.success(keys.get(i), await(futures.get(i))));
+            } catch (ProcessingException e) {
+                if(e.getCause() instanceof InterruptedException) {
+                    for(int j = i; j < futures.size(); j++) {
+                        futures.get(j).cancel(false);
+                    }
+                    throw e;
+                }
+                results.add(ItemResult.failure(keys.get(i), e));
+            } catch (AuthenticationException | RuntimeException e) {
+                results.add(ItemResult.failure(keys.get(i), e));
+            }
+        }
+        return results;
+    }
+
+    public <T> List<ItemResult<T>> getObjects(String sudoUserName, String apiPathTemplate, Collection<?> ids,
+                                              Class<T> zClass, MultivaluedMap<String, Object> queryParams,
+                                              int concurrency) {
+        return this.getObjects(sudoUserName, Constants.GITLAB_API_URL, apiPathTemplate, ids, zClass, queryParams,
+                concurrency);
+    }
+
     public Client getClient() {
         return client;
     }
 
     public void setClient(Client client) {
         this.client = client;
+        baseTargets.clear();
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Drops the cached responses of the api path and of the paths below it, whatever the identity or the query
+     * parameters they were requested with, for example once a hook reported the resource as changed.
+     */
+    public void invalidate(String apiUrlPrefix, String apiPath) {
+        ResponseCache cache = this.responseCache;
+        if(cache != null) {
+            String path = apiUrlPrefix + '/' + apiPath;
+            cache.invalidate(key -> key.startsWith(path + '?') || key.startsWith(path + '/'));
+        }
+    }
+
+    /**
+     * Enables conditional requests for {@link #getObject(String, String, String, Class, MultivaluedMap)} and
+     * {@link #getList(String, String, String, Class, MultivaluedMap)} along with their async variants.
+     *
+     * @param responseCache cache to use, or <code>null</code> to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public RequestRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Limits the rate of the requests sent to gitlab. Throttled requests are sent again once gitlab allows
+     * it, a <code>429</code> which could not be recovered is reported as {@link ClientErrorException}.
+     *
+     * @param rateLimiter limiter to use, or <code>null</code> to send the requests without limit
+     */
+    public void setRateLimiter(RequestRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sends the failed GET requests again, and optionally hedges the slow ones, according to the policy.
+     *
+     * @param retryPolicy policy applied to the endpoints without a policy of their own, or <code>null</code>
+     *                    to report the failures right away
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Tunes the retries for some endpoints, the policy of the longest matching prefix is used.
+     *
+     * @param apiPathPrefix prefix of the api paths, for example <code>/projects</code>
+     * @param retryPolicy policy for these endpoints, or <code>null</code> to fall back to the default policy
+     */
+    public void setRetryPolicy(String apiPathPrefix, RetryPolicy retryPolicy) {
+        if(retryPolicy == null) {
+            endpointRetryPolicies.remove(apiPathPrefix);
+        } else {
+            endpointRetryPolicies.put(apiPathPrefix, retryPolicy);
+        }
+    }
+
+    private static <C extends Configurable<C>> void registerCompression(C configurable) {
+        configurable.register(EncodingFilter.class)
+                .register(GZipEncoder.class)
+                .register(DeflateEncoder.class);
+    }
+
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Reports the timings and counters of every GET request, see {@link RequestMetricsRecorder}. Bytes and
+     * deserialization times are only measured when the client has been created by this service.
+     *
+     * @param requestListener listener to notify, or <code>null</code> to stop measuring
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescer != null;
+    }
+
+    /**
+     * When enabled, identical requests (same url, query params, token and sudo user) issued while one of them
+     * is in flight share its result instead of being sent again. The shared objects should be treated as
+     * read only.
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        if(requestCoalescing != isRequestCoalescing()) {
+            this.requestCoalescer = requestCoalescing ? new RequestCoalescer() : null;
+        }
     }
 
     public String getPrivateToken() {
@@ -185,6 +789,16 @@ public class ConnectionService {
         this.privateToken = privateToken;
     }
 
+    /**
+     * Releases the underlying http client along with its pooled connections
+     */
+    public void close() {
+        if(connectionEviction != null) {
+            connectionEviction.cancel(false);
+        }
+        client.close();
+    }
+
     private <T> Response doPostRequest(String apiUrlPrefix, String apiPath,
                                        T entity, String postEntityMediaType,
                                        MultivaluedMap<String, Object> headers, String ... acceptMediaTypes) {
@@ -193,50 +807,1131 @@ public class ConnectionService {
         return invocationBuilder.post(Entity.entity(entity, postEntityMediaType));
     }
 
-    private <T> PaginatedList<T> getPaginatedList(List<T> t, Response response) {
-        return new PaginatedList<T>(t, convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_TOTAL)),
-                convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_TOTAL_PAGES)),
-                convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_PER_PAGE)),
-                convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_PAGE)),
-                convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_PREVIOUS_PAGE)),
-                convertToZeroIfNullOrEmpty(response.getHeaderString(Constants.X_NEXT_PAGE)));
+    private MultivaluedMap<String, Object> getHeaders(String privateToken, String sudoUserName) {
+        return getIdentity(privateToken).getHeaders(sudoUserName);
     }
 
-    private Integer convertToZeroIfNullOrEmpty(String value) {
-        return Integer.parseInt(
-                Strings.padStart(Strings.nullToEmpty(value), 1, '0'));
+    private MultivaluedMap<String, Object> getHeaders(String privateToken, String sudoUserName,
+                                                      CachedResponse cached) {
+        if(cached == null) {
+            return getHeaders(privateToken, sudoUserName);
+        }
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<String, Object>(
+                getHeaders(privateToken, sudoUserName));
+        if(cached.getETag() != null) {
+            headers.add(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
+        if(cached.getLastModified() != null) {
+            headers.add(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+        return headers;
     }
 
-    private Response doGetRequest(String apiUrlPrefix, String apiPath,
-                                  MultivaluedMap<String, Object> queryParams,
-                                  MultivaluedMap<String, Object> headers, String ... mediaTypes) {
-        WebTarget webTarget = this.getClient().target(apiUrlPrefix).path(apiPath);
-        if (queryParams!= null && queryParams.keySet().size() > 0 ) {
-            for(String key : queryParams.keySet()) {
-                webTarget = webTarget.queryParam(key, queryParams.get(key));
-            }
+    private String getCacheKey(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                               MultivaluedMap<String, Object> queryParams) {
+        return getCacheKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams, null);
+    }
+
+    /**
+     * Projected entities are cached apart from the complete ones
+     */
+    private String getCacheKey(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                               MultivaluedMap<String, Object> queryParams, JsonProjection<?> projection) {
+        if(responseCache == null) {
+            return null;
         }
-        Invocation.Builder invocationBuilder =  webTarget.request()
-                .accept(mediaTypes)
-                .headers(headers);
-        return invocationBuilder.get();
+        String key = getRequestKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+        return projection == null ? key : key + '#' + projection.getKey();
     }
 
-    private <T> GenericType<List<T>> getType(final Class<T> clazz) {
-        ParameterizedType genericType = new ParameterizedType() {
-            public Type[] getActualTypeArguments() {
-                return new Type[]{clazz};
-            }
+    /**
+     * Identifies a request along with the identity it is sent with, the token is hashed so that it is never
+     * written to the persistent cache.
+     */
+    private String getRequestKey(String privateToken, String sudoUserName, String apiUrlPrefix, String apiPath,
+                                 MultivaluedMap<String, Object> queryParams) {
+        StringBuilder key = new StringBuilder(apiUrlPrefix).append('/').append(apiPath).append('?');
+        if(queryParams != null) {
+            key.append(new TreeMap<>(queryParams));
+        }
+        return key.append('#').append(Strings.nullToEmpty(sudoUserName))
+                .append('#').append(getIdentity(privateToken).tokenHash)
+                .toString();
+    }
 
-            public Type getRawType() {
-                return List.class;
+    private Identity getIdentity(String privateToken) {
+        Identity identity = identities.get(privateToken);
+        if(identity == null) {
+            if(identities.size() >= MAX_IDENTITIES) {
+                identities.clear();
             }
+            identity = identities.computeIfAbsent(privateToken, Identity::new);
+        }
+        return identity;
+    }
 
-            public Type getOwnerType() {
-                return List.class;
-            }
-        };
-        return new GenericType<List<T>>(genericType) {
-        };
+    private String getCoalescingKey(String kind, String type, String privateToken, String sudoUserName,
+                                    String apiUrlPrefix, String apiPath, MultivaluedMap<String, Object> queryParams) {
+        if(requestCoalescer == null) {
+            return null;
+        }
+        return kind + ':' + type + ':'
+                + getRequestKey(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+    }
+
+    private String getTypeKey(Class<?> zClass, JsonProjection<?> projection) {
+        return projection == null ? zClass.getName() : projection.getKey();
+    }
+
+    private <T> T coalesce(String coalescingKey, ServiceCall<T> call) throws AuthenticationException {
+        RequestCoalescer coalescer = this.requestCoalescer;
+        if(coalescingKey == null || coalescer == null) {
+            return call.call();
+        }
+        return coalescer.execute(coalescingKey, call);
+    }
+
+    private <T> CompletableFuture<T> coalesceAsync(String coalescingKey, Supplier<CompletableFuture<T>> call) {
+        RequestCoalescer coalescer = this.requestCoalescer;
+        if(coalescingKey == null || coalescer == null) {
+            return call.get();
+        }
+        return coalescer.executeAsync(coalescingKey, call);
+    }
+
+    private CachedResponse getCachedResponse(String cacheKey) {
+        ResponseCache cache = this.responseCache;
+        return cacheKey == null || cache == null ? null : cache.get(cacheKey);
+    }
+
+    private <T> ResponseReader<T> getObjectReader(Class<T> zClass, JsonProjection<T> projection, String cacheKey,
+                                                  CachedResponse cached) {
+        return response -> {
+            if(isNotModified(response, cached)) {
+                return zClass.cast(getCachedEntity(cacheKey, cached, body -> projection == null
+                        ? JsonSupport.readObject(body, zClass) : projection.readObject(body)));
+            }
+            bufferForCache(cacheKey, response);
+            T t = readObject(response, zClass, projection);
+            cacheResponse(cacheKey, t, response);
+            return t;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseReader<PaginatedList<T>> getListReader(Class<T> zClass, JsonProjection<T> projection,
+                                                               String cacheKey, CachedResponse cached) {
+        return response -> {
+            if(isNotModified(response, cached)) {
+                List<T> tList = (List<T>) getCachedEntity(cacheKey, cached, body -> projection == null
+                        ? JsonSupport.readList(body, zClass) : projection.readList(body));
+                return getPaginatedList(tList, cached::getHeader);
+            }
+            bufferForCache(cacheKey, response);
+            PaginatedList<T> page = readList(response, zClass, projection);
+            cacheResponse(cacheKey, page == null ? null : page.gettList(), response);
+            return page;
+        };
+    }
+
+    private boolean isNotModified(Response response, CachedResponse cached) {
+        if(cached != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            response.close();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cached object, deserializing it first when the response has been read from the disk
+     */
+    private Object getCachedEntity(String cacheKey, CachedResponse cached, BodyReader reader) {
+        if(cached.getEntity() != null) {
+            return cached.getEntity();
+        }
+        Object entity;
+        try {
+            entity = reader.read(cached.getBody());
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+        ResponseCache cache = this.responseCache;
+        if(cache != null) {
+            cache.promote(cacheKey, cached.withEntity(entity));
+        }
+        return entity;
+    }
+
+    /**
+     * Buffers the entity, so that the raw body can be read again for the persistent cache
+     */
+    private void bufferForCache(String cacheKey, Response response) {
+        ResponseCache cache = this.responseCache;
+        if(cacheKey != null && cache != null && cache.isPersistent()
+                && response.getStatus() == Response.Status.OK.getStatusCode()) {
+            response.bufferEntity();
+        }
+    }
+
+    private void cacheResponse(String cacheKey, Object entity, Response response) {
+        ResponseCache cache = this.responseCache;
+        if(cacheKey == null || cache == null || entity == null) {
+            return;
+        }
+        String eTag = response.getHeaderString(HttpHeaders.ETAG);
+        String lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        if(eTag != null || lastModified != null) {
+            Map<String, String> headers = new HashMap<>();
+            for(String header : PAGINATION_HEADERS) {
+                String value = response.getHeaderString(header);
+                if(value != null) {
+                    headers.put(header, value);
+                }
+            }
+            byte[] body = cache.isPersistent() ? response.readEntity(byte[].class) : null;
+            cache.put(cacheKey, new CachedResponse(entity, body, eTag, lastModified, headers));
+        }
+    }
+
+    private <T> T readObject(Response response, Class<T> zClass, JsonProjection<T> projection)
+            throws AuthenticationException {
+        if(response.getStatus() == Response.Status.OK.getStatusCode()) {
+            return projection == null ? response.readEntity(zClass) : readProjected(response, projection::readObject);
+        }
+        try {
+            if(response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                throw new NotFoundException();
+            } else if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+                throw new AuthenticationException("Please use valid token");
+            } else if(response.getStatus() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                throw new ClientErrorException(response);
+            }
+            return null;
+        } finally {
+            // the error body is never read, so the pooled connection has to be released here
+            response.close();
+        }
+    }
+
+    /**
+     * Binds the body with the projection instead of jersey's jackson provider
+     */
+    private <T> T readProjected(Response response, BodyParser<T> parser) {
+        try (InputStream inputStream = response.readEntity(InputStream.class)) {
+            return parser.parse(inputStream);
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    private Long readCount(Response response) throws AuthenticationException {
+        try {
+            if(response.getStatus() == Response.Status.OK.getStatusCode()) {
+                String total = response.getHeaderString(Constants.X_TOTAL);
+                if(Strings.isNullOrEmpty(total)) {
+                    total = response.getHeaderString(Constants.X_TOTAL_PAGES);
+                }
+                return Strings.isNullOrEmpty(total) ? -1L : Long.parseLong(total.trim());
+            } else if(response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                throw new NotFoundException();
+            } else if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+                throw new AuthenticationException("Please use valid token");
+            } else if(response.getStatus() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                throw new ClientErrorException(response);
+            }
+            return null;
+        } finally {
+            // the body is never read
+            response.close();
+        }
+    }
+
+    private <T> PaginatedList<T> readList(Response response, Class<T> zClass, JsonProjection<T> projection)
+            throws AuthenticationException {
+        if(response.getStatus() == Response.Status.OK.getStatusCode()) {
+            List<T> tList = projection == null ? response.readEntity(getType(zClass))
+                    : readProjected(response, projection::readList);
+            return getPaginatedList(tList, response);
+        }
+        try {
+            if(response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+                throw new AuthenticationException("Please use valid token");
+            } else if(response.getStatus() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                throw new ClientErrorException(response);
+            }
+            return null;
+        } finally {
+            response.close();
+        }
+    }
+
+    MultivaluedMap<String, Object> withPage(MultivaluedMap<String, Object> queryParams, int page) {
+        MultivaluedMap<String, Object> pageParams = new MultivaluedHashMap<>();
+        if(queryParams != null) {
+            pageParams.putAll(queryParams);
+        }
+        pageParams.putSingle(Constants.PAGE_PARAM, page);
+        return pageParams;
+    }
+
+    /**
+     * @return the query params of a single item page, keyset pagination being dropped as it has no totals
+     */
+    private MultivaluedMap<String, Object> withSingleItem(MultivaluedMap<String, Object> queryParams) {
+        MultivaluedMap<String, Object> pageParams = new MultivaluedHashMap<>();
+        if(queryParams != null) {
+            pageParams.putAll(queryParams);
+        }
+        pageParams.remove(Constants.PAGINATION_PARAM);
+        pageParams.putSingle(Constants.PER_PAGE_PARAM, 1);
+        return pageParams;
+    }
+
+    /**
+     * @return the query params of the first page, keyset pagination starting without any page number
+     */
+    MultivaluedMap<String, Object> firstPage(MultivaluedMap<String, Object> queryParams) {
+        if(queryParams != null
+                && Constants.KEYSET_PAGINATION.equals(queryParams.getFirst(Constants.PAGINATION_PARAM))) {
+            return queryParams;
+        }
+        return withPage(queryParams, 1);
+    }
+
+    /**
+     * @return the query params of the page following the given page, or <code>null</code> for the last page
+     */
+    MultivaluedMap<String, Object> nextPage(MultivaluedMap<String, Object> queryParams, PaginatedList<?> page) {
+        if(page.getNextPage() != null && page.getNextPage() > 0) {
+            return withPage(queryParams, page.getNextPage());
+        } else if(page.getNextLink() != null) {
+            return withLink(queryParams, page.getNextLink());
+        }
+        return null;
+    }
+
+    /**
+     * Takes the query of the link over the query params, so that the cursor of a keyset page is followed
+     * through the same api path and with the same headers, cache and retries as any other request.
+     */
+    MultivaluedMap<String, Object> withLink(MultivaluedMap<String, Object> queryParams, String link) {
+        MultivaluedMap<String, Object> linkParams = new MultivaluedHashMap<>();
+        String query = URI.create(link).getRawQuery();
+        if(query != null) {
+            for(String param : query.split("&")) {
+                if(param.isEmpty()) {
+                    continue;
+                }
+                int separator = param.indexOf('=');
+                String key = separator < 0 ? param : param.substring(0, separator);
+                String value = separator < 0 ? "" : param.substring(separator + 1);
+                linkParams.add(decode(key), decode(value));
+            }
+        }
+        MultivaluedMap<String, Object> pageParams = new MultivaluedHashMap<>();
+        if(queryParams != null) {
+            pageParams.putAll(queryParams);
+        }
+        pageParams.putAll(linkParams);
+        return pageParams;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the url of the <code>rel="next"</code> link of a <code>Link</code> header, or <code>null</code>
+     */
+    static String getNextLink(String linkHeader) {
+        if(Strings.isNullOrEmpty(linkHeader)) {
+            return null;
+        }
+        Matcher link = LINK_PATTERN.matcher(linkHeader);
+        while(link.find()) {
+            Matcher rel = NEXT_REL_PATTERN.matcher(link.group(2));
+            while(rel.find()) {
+                for(String relation : rel.group(1).trim().split("\\s+")) {
+                    if("next".equalsIgnoreCase(relation)) {
+                        return link.group(1).trim();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private <T> PaginatedList<T> requirePage(PaginatedList<T> page, int pageNumber) {
+        if(page == null) {
+            throw new ProcessingException("Unable to fetch page " + pageNumber);
+        }
+        return page;
+    }
+
+    /**
+     * Starts a call for every key while keeping at most <code>parallelism</code> calls in flight. The
+     * returned futures are in the same order as the keys.
+     */
+    private <K, V> List<CompletableFuture<V>> fanOut(List<K> keys, Function<K, CompletableFuture<V>> call,
+                                                    int parallelism) {
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<V>> futures = new ArrayList<>(keys.size());
+        for(K key : keys) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<V> future;
+            try {
+                future = call.apply(key);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            future.whenComplete((value, throwable) -> permits.release());
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for the future and rethrows its failure the same way the blocking methods would.
+     */
+    static <T> T await(CompletableFuture<T> future) throws AuthenticationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof AuthenticationException) {
+                throw (AuthenticationException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ProcessingException(cause);
+        }
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(ServiceCall<T> call, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private <T> PaginatedList<T> getPaginatedList(List<T> t, Response response) {
+        return getPaginatedList(t, response::getHeaderString);
+    }
+
+    private <T> PaginatedList<T> getPaginatedList(List<T> t, Function<String, String> headers) {
+        return new PaginatedList<T>(t, convertToZeroIfNullOrEmpty(headers.apply(Constants.X_TOTAL)),
+                convertToZeroIfNullOrEmpty(headers.apply(Constants.X_TOTAL_PAGES)),
+                convertToZeroIfNullOrEmpty(headers.apply(Constants.X_PER_PAGE)),
+                convertToZeroIfNullOrEmpty(headers.apply(Constants.X_PAGE)),
+                convertToZeroIfNullOrEmpty(headers.apply(Constants.X_PREVIOUS_PAGE)),
+                convertToZeroIfNullOrEmpty(headers.apply(Constants.X_NEXT_PAGE)),
+                getNextLink(headers.apply(Constants.LINK)));
+    }
+
+    private Integer convertToZeroIfNullOrEmpty(String value) {
+        return Integer.parseInt(
+                Strings.padStart(Strings.nullToEmpty(value), 1, '0'));
+    }
+
+    private <T> T doGetRequest(String apiUrlPrefix, String apiPath,
+                               MultivaluedMap<String, Object> queryParams,
+                               MultivaluedMap<String, Object> headers,
+                               ResponseReader<T> reader, String ... mediaTypes) throws AuthenticationException {
+        RequestListener listener = this.requestListener;
+        if(listener == null) {
+            return reader.read(execute(prepareGetRequest(apiUrlPrefix, apiPath, queryParams, headers, null,
+                    mediaTypes), apiUrlPrefix, apiPath, headers, null));
+        }
+        RequestMetrics metrics = new RequestMetrics(apiUrlPrefix, apiPath);
+        notifyStart(listener, metrics);
+        T t = null;
+        Throwable failure = null;
+        try {
+            t = reader.read(execute(prepareGetRequest(apiUrlPrefix, apiPath, queryParams, headers, metrics,
+                    mediaTypes), apiUrlPrefix, apiPath, headers, metrics));
+            return t;
+        } catch (AuthenticationException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            notifyEnd(listener, metrics, t, failure);
+        }
+    }
+
+    /**
+     * Sends the request, and sends it again while it fails and the retry policy allows it. An interrupted
+     * caller is never retried.
+     */
+    private Response execute(Invocation.Builder invocationBuilder, String apiUrlPrefix, String apiPath,
+                             MultivaluedMap<String, Object> headers, RequestMetrics metrics) {
+        String token = (String) headers.getFirst(Constants.PRIVATE_TOKEN_HEADER);
+        RetryPolicy policy = getRetryPolicy(apiPath);
+        if(policy == null) {
+            return send(invocationBuilder, apiUrlPrefix, token, null, metrics);
+        }
+        for(int attempt = 1; ; attempt++) {
+            Response response = null;
+            try {
+                response = policy.isHedging() ? sendHedged(invocationBuilder, apiUrlPrefix, token, policy, metrics)
+                        : send(invocationBuilder, apiUrlPrefix, token, policy, metrics);
+            } catch (ProcessingException e) {
+                if(e.getCause() instanceof InterruptedException) {
+                    // the caller has given up, not the connection
+                    Thread.currentThread().interrupt();
+                    throw e;
+                } else if(attempt >= policy.getMaxAttempts() || !policy.isRetryable(e)) {
+                    throw e;
+                }
+                LOG.debug("Request to {} failed, retrying", apiPath, e);
+            }
+            if(response != null) {
+                if(!policy.isRetryable(response.getStatus()) || attempt >= policy.getMaxAttempts()) {
+                    return response;
+                }
+                LOG.debug("Request to {} failed with {}, retrying", apiPath, response.getStatus());
+                response.close();
+            }
+            policy.onRetry();
+            if(metrics != null) {
+                metrics.onRetry();
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(policy.getBackoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessingException(e);
+            }
+        }
+    }
+
+    /**
+     * Sends the request, waiting for the rate limiter and sending it again while gitlab throttles it
+     */
+    private Response send(Invocation.Builder invocationBuilder, String apiUrlPrefix, String token,
+                          RetryPolicy policy, RequestMetrics metrics) {
+        RequestRateLimiter limiter = this.rateLimiter;
+        for(int throttled = 0; ; throttled++) {
+            if(limiter != null) {
+                limiter.acquire(apiUrlPrefix, token);
+            }
+            long startedAt = System.nanoTime();
+            Response response = invocationBuilder.get();
+            long latency = System.nanoTime() - startedAt;
+            if(policy != null) {
+                policy.recordLatency(latency);
+            }
+            if(metrics != null) {
+                metrics.onResponse(response.getStatus(), latency);
+            }
+            if(limiter == null || !limiter.onResponse(apiUrlPrefix, token, response)
+                    || throttled >= limiter.getMaxRetries()) {
+                return response;
+            }
+            if(metrics != null) {
+                metrics.onRetry();
+            }
+            response.close();
+        }
+    }
+
+    /**
+     * Sends the request, and an identical one when no response arrived within the hedge delay. The first
+     * successful response is returned, the other one is discarded.
+     *
+     * Both attempts run concurrently, so each one records its own metrics and only those of the returned
+     * response are merged into the metrics of the request.
+     */
+    private Response sendHedged(Invocation.Builder invocationBuilder, String apiUrlPrefix, String token,
+                                RetryPolicy policy, RequestMetrics metrics) {
+        CompletionService<Response> completionService = new ExecutorCompletionService<>(RETRY_EXECUTOR);
+        RequestMetrics primaryMetrics = metrics == null ? null : metrics.newAttempt();
+        RequestMetrics hedgeMetrics = metrics == null ? null : metrics.newAttempt();
+        Future<Response> primary = completionService.submit(() -> send(invocationBuilder, apiUrlPrefix, token, policy,
+                primaryMetrics));
+        Future<Response> first;
+        try {
+            first = completionService.poll(policy.getHedgeDelay(), TimeUnit.MILLISECONDS);
+            if(first == null) {
+                policy.onHedge();
+                completionService.submit(() -> send(invocationBuilder, apiUrlPrefix, token, policy, hedgeMetrics));
+                first = completionService.take();
+                Response response = getHedgedResponse(first);
+                if(response != null && !policy.isRetryable(response.getStatus())) {
+                    discard(completionService);
+                    if(first != primary) {
+                        policy.onHedgeWin();
+                    }
+                    onAttempt(metrics, first == primary ? primaryMetrics : hedgeMetrics);
+                    return response;
+                }
+                // the first one to answer has failed, so wait for the other one
+                Future<Response> second = completionService.take();
+                Response other = getHedgedResponse(second);
+                if(other == null) {
+                    onAttempt(metrics, first == primary ? primaryMetrics : hedgeMetrics);
+                    return response == null ? getResponse(first) : response;
+                }
+                if(response != null) {
+                    response.close();
+                }
+                if(second != primary) {
+                    policy.onHedgeWin();
+                }
+                onAttempt(metrics, second == primary ? primaryMetrics : hedgeMetrics);
+                return other;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        }
+        onAttempt(metrics, primaryMetrics);
+        return getResponse(first);
+    }
+
+    private void onAttempt(RequestMetrics metrics, RequestMetrics attempt) {
+        if(metrics != null) {
+            metrics.onAttempt(attempt);
+        }
+    }
+
+    private Response getHedgedResponse(Future<Response> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private Response getResponse(Future<Response> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new ProcessingException(e.getCause());
+        }
+    }
+
+    private void discard(CompletionService<Response> completionService) {
+        RETRY_EXECUTOR.execute(() -> {
+            try {
+                Response response = Uninterruptibles.getUninterruptibly(completionService.take());
+                response.close();
+            } catch (ExecutionException e) {
+                LOG.debug("Discarded hedged request failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private RetryPolicy getRetryPolicy(String apiPath) {
+        RetryPolicy policy = this.retryPolicy;
+        int matched = -1;
+        for(Map.Entry<String, RetryPolicy> entry : endpointRetryPolicies.entrySet()) {
+            if(apiPath.startsWith(entry.getKey()) && entry.getKey().length() > matched) {
+                matched = entry.getKey().length();
+                policy = entry.getValue();
+            }
+        }
+        return policy;
+    }
+
+    private <T> CompletableFuture<T> doGetRequestAsync(String apiUrlPrefix, String apiPath,
+                                                       MultivaluedMap<String, Object> queryParams,
+                                                       MultivaluedMap<String, Object> headers,
+                                                       ResponseReader<T> reader, String ... mediaTypes) {
+        RequestListener listener = this.requestListener;
+        RequestMetrics metrics = null;
+        if(listener != null) {
+            metrics = new RequestMetrics(apiUrlPrefix, apiPath);
+            notifyStart(listener, metrics);
+        }
+        AsyncRequest<T> request = new AsyncRequest<>(prepareGetRequest(apiUrlPrefix, apiPath, queryParams,
+                headers, metrics, mediaTypes), apiUrlPrefix, (String) headers.getFirst(Constants.PRIVATE_TOKEN_HEADER),
+                getRetryPolicy(apiPath), reader, listener, metrics);
+        request.send();
+        return request.future;
+    }
+
+    private void notifyStart(RequestListener listener, RequestMetrics metrics) {
+        try {
+            listener.onRequestStart(metrics);
+        } catch (RuntimeException e) {
+            LOG.warn("Request listener failed", e);
+        }
+    }
+
+    private void notifyEnd(RequestListener listener, RequestMetrics metrics, Object result, Throwable failure) {
+        metrics.onEnd(result, failure);
+        try {
+            listener.onRequestEnd(metrics);
+        } catch (RuntimeException e) {
+            LOG.warn("Request listener failed", e);
+        }
+    }
+
+    private Invocation.Builder prepareGetRequest(String apiUrlPrefix, String apiPath,
+                                                 MultivaluedMap<String, Object> queryParams,
+                                                 MultivaluedMap<String, Object> headers, RequestMetrics metrics,
+                                                 String ... mediaTypes) {
+        WebTarget webTarget = getBaseTarget(apiUrlPrefix).path(apiPath);
+        if(queryParams != null) {
+            for(Map.Entry<String, List<Object>> queryParam : queryParams.entrySet()) {
+                webTarget = webTarget.queryParam(queryParam.getKey(), queryParam.getValue().toArray());
+            }
+        }
+        Invocation.Builder invocationBuilder = webTarget.request()
+                .accept(mediaTypes)
+                .headers(headers);
+        if(metrics != null) {
+            invocationBuilder.property(RequestMetrics.PROPERTY, metrics);
+        }
+        return invocationBuilder;
+    }
+
+    /**
+     * Web targets are immutable, so the target of every api url is built once and shared by all the requests
+     */
+    private WebTarget getBaseTarget(String apiUrlPrefix) {
+        WebTarget webTarget = baseTargets.get(apiUrlPrefix);
+        if(webTarget == null) {
+            Client client = this.getClient();
+            webTarget = baseTargets.computeIfAbsent(apiUrlPrefix, client::target);
+        }
+        return webTarget;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> GenericType<List<T>> getType(final Class<T> clazz) {
+        GenericType<?> type = LIST_TYPES.get(clazz);
+        if(type == null) {
+            type = LIST_TYPES.computeIfAbsent(clazz, ConnectionService::newListType);
+        }
+        return (GenericType<List<T>>) type;
+    }
+
+    private static <T> GenericType<List<T>> newListType(final Class<T> clazz) {
+        ParameterizedType genericType = new ParameterizedType() {
+            public Type[] getActualTypeArguments() {
+                return new Type[]{clazz};
+            }
+
+            public Type getRawType() {
+                return List.class;
+            }
+
+            public Type getOwnerType() {
+                return List.class;
+            }
+        };
+        return new GenericType<List<T>>(genericType) {
+        };
+    }
+
+    /**
+     * Builds a {@link ConnectionService} backed by a pooled, keep-alive http transport.
+     *
+     * Unlike {@link ConnectionService#getInstance()} the built service is not shared, so it should be
+     * closed using {@link ConnectionService#close()} once it is no longer needed.
+     */
+    public static class Builder {
+        private int connectTimeout = DEFAULT_TIMEOUT;
+        private int readTimeout = DEFAULT_TIMEOUT;
+        private int connectionRequestTimeout = DEFAULT_TIMEOUT;
+        private int maxConnections = 200;
+        private int maxConnectionsPerRoute = 50;
+        private long keepAlive = -1;
+        private long idleTimeout = 30000;
+        private boolean compression;
+
+        private Builder() {
+        }
+
+        /**
+         * @param connectTimeout timeout in milliseconds to establish a connection
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout socket timeout in milliseconds while waiting for data
+         */
+        public Builder readTimeout(int readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param connectionRequestTimeout timeout in milliseconds to acquire a connection from the pool
+         */
+        public Builder connectionRequestTimeout(int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxConnections maximum number of pooled connections across all the hosts
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerRoute maximum number of pooled connections to a single host
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param keepAlive maximum time in milliseconds a connection is kept for reuse, a value
+         *                  less than or equal to zero keeps it as long as the server allows
+         */
+        public Builder keepAlive(long keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout time in milliseconds after which an unused connection is evicted from the pool,
+         *                    a value less than or equal to zero disables the eviction
+         */
+        public Builder idleTimeout(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Compressed responses are decompressed while being read, the saved transfer is reported by
+         * {@link RequestMetrics#getBytesRead()} and {@link RequestMetrics#getBytesDecoded()}.
+         *
+         * @param compression whether gzip or deflate compressed responses are requested from gitlab
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public ConnectionService build() {
+            PoolingHttpClientConnectionManager connectionManager =
+                    new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.MILLISECONDS);
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(connectTimeout)
+                    .setSocketTimeout(readTimeout)
+                    .setConnectionRequestTimeout(connectionRequestTimeout)
+                    // decompression is left to jersey, so that the compressed bytes can be measured
+                    .setContentCompressionEnabled(false)
+                    .build();
+            ClientConfig clientConfig = new ClientConfig()
+                    .connectorProvider(new ApacheConnectorProvider())
+                    .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                    .property(ApacheClientProperties.REQUEST_CONFIG, requestConfig)
+                    .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
+                    .property(ClientProperties.READ_TIMEOUT, readTimeout)
+                    .register(JacksonFeature.class)
+                    .register(ObjectMapperProvider.class)
+                    .register(RequestMetricsInterceptor.class)
+                    .register(RequestMetricsInterceptor.Decoded.class);
+            if(compression) {
+                registerCompression(clientConfig);
+            }
+            ConnectionService connectionService =
+                    new ConnectionService(new JerseyClientBuilder().withConfig(clientConfig).build());
+            if(idleTimeout > 0) {
+                connectionService.connectionEviction = SCHEDULER.scheduleWithFixedDelay(() -> {
+                    connectionManager.closeExpiredConnections();
+                    connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+                }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+            }
+            return connectionService;
+        }
+    }
+
+    /**
+     * A GET request sent through the async invoker, sent again while it is throttled or while it fails
+     * and the retry policy allows it. Retries are never sent from jersey's callback thread, and the caller
+     * is never blocked by the rate limiter.
+     *
+     * When the retry policy hedges, an identical request is sent once an attempt has not been answered within
+     * the hedge delay, unless the rate limiter has no permit left for it. The first successful response of
+     * the two is used and the other one is discarded, as with the blocking requests.
+     */
+    private class AsyncRequest<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final RequestRateLimiter limiter = rateLimiter;
+        private final Invocation.Builder invocationBuilder;
+        private final String apiUrlPrefix;
+        private final String token;
+        private final RetryPolicy policy;
+        private final ResponseReader<T> reader;
+        private final RequestListener listener;
+        private final RequestMetrics metrics;
+        private int throttled;
+        private int attempt = 1;
+        // every send starts a round, which the hedged request joins, guarded by this
+        private int round;
+        private int pending;
+        private boolean decided;
+
+        AsyncRequest(Invocation.Builder invocationBuilder, String apiUrlPrefix, String token, RetryPolicy policy,
+                     ResponseReader<T> reader, RequestListener listener, RequestMetrics metrics) {
+            this.invocationBuilder = invocationBuilder;
+            this.apiUrlPrefix = apiUrlPrefix;
+            this.token = token;
+            this.policy = policy;
+            this.reader = reader;
+            this.listener = listener;
+            this.metrics = metrics;
+        }
+
+        void send() {
+            long delay = limiter == null ? 0 : limiter.tryAcquire(apiUrlPrefix, token);
+            if(delay > 0) {
+                // wait for the permit on the scheduler, the caller may be an async entry point
+                SCHEDULER.schedule(() -> RETRY_EXECUTOR.execute(this::send), delay, TimeUnit.NANOSECONDS);
+                return;
+            }
+            boolean hedging = policy != null && policy.isHedging();
+            Attempt first;
+            synchronized (this) {
+                first = new Attempt(++round, false, hedging);
+                pending = 1;
+                decided = false;
+            }
+            first.send();
+            if(hedging) {
+                SCHEDULER.schedule(() -> RETRY_EXECUTOR.execute(() -> hedge(first.round)), policy.getHedgeDelay(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void hedge(int hedgedRound) {
+            Attempt hedged;
+            synchronized (this) {
+                if(hedgedRound != round || decided
+                        || limiter != null && limiter.tryAcquire(apiUrlPrefix, token) > 0) {
+                    return;
+                }
+                hedged = new Attempt(round, true, true);
+                pending++;
+            }
+            policy.onHedge();
+            hedged.send();
+        }
+
+        /**
+         * @return whether the attempt settles its round, being the first one to succeed or the last one to fail
+         */
+        private synchronized boolean settles(Attempt settling, boolean failure) {
+            if(settling.round != round || decided) {
+                return false;
+            }
+            pending--;
+            if(failure && pending > 0) {
+                // the other attempt of the round may still succeed
+                return false;
+            }
+            decided = true;
+            return true;
+        }
+
+        private void completed(Attempt answered, Response response) {
+            boolean throttledResponse = limiter != null && limiter.onResponse(apiUrlPrefix, token, response);
+            boolean retryable = policy != null && policy.isRetryable(response.getStatus());
+            if(!settles(answered, throttledResponse || retryable)) {
+                response.close();
+                return;
+            }
+            answered.onSettled(throttledResponse || retryable);
+            if(throttledResponse && throttled < limiter.getMaxRetries()) {
+                // wait for the throttling to be over without holding jersey's callback thread
+                throttled++;
+                onRetry();
+                response.close();
+                RETRY_EXECUTOR.execute(this::send);
+                return;
+            }
+            if(retryable && attempt < policy.getMaxAttempts()) {
+                response.close();
+                retry();
+                return;
+            }
+            try {
+                T t = reader.read(response);
+                end(t, null);
+                future.complete(t);
+            } catch (Throwable t) {
+                end(null, t);
+                future.completeExceptionally(t);
+            }
+        }
+
+        private void failed(Attempt failed, Throwable throwable) {
+            if(!settles(failed, true)) {
+                return;
+            }
+            failed.onSettled(true);
+            if(policy != null && throwable instanceof ProcessingException && attempt < policy.getMaxAttempts()
+                    && policy.isRetryable((ProcessingException) throwable)) {
+                retry();
+                return;
+            }
+            end(null, throwable);
+            future.completeExceptionally(throwable);
+        }
+
+        private void retry() {
+            policy.onRetry();
+            onRetry();
+            SCHEDULER.schedule(() -> RETRY_EXECUTOR.execute(this::send), policy.getBackoff(attempt++),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private void onRetry() {
+            if(metrics != null) {
+                metrics.onRetry();
+            }
+        }
+
+        private void end(T t, Throwable failure) {
+            if(listener != null) {
+                notifyEnd(listener, metrics, t, failure);
+            }
+        }
+
+        /**
+         * A single invocation of the request, hedged attempts record their own metrics until one of them settles
+         * the round
+         */
+        private class Attempt implements InvocationCallback<Response> {
+            private final int round;
+            private final boolean hedge;
+            private final RequestMetrics attemptMetrics;
+            private long startedAt;
+
+            Attempt(int round, boolean hedge, boolean hedging) {
+                this.round = round;
+                this.hedge = hedge;
+                this.attemptMetrics = metrics == null || !hedging ? metrics : metrics.newAttempt();
+            }
+
+            void send() {
+                startedAt = System.nanoTime();
+                invocationBuilder.async().get(this);
+            }
+
+            void onSettled(boolean failure) {
+                if(attemptMetrics != metrics) {
+                    metrics.onAttempt(attemptMetrics);
+                }
+                if(hedge && !failure) {
+                    policy.onHedgeWin();
+                }
+            }
+
+            @Override
+            public void completed(Response response) {
+                long latency = System.nanoTime() - startedAt;
+                if(policy != null) {
+                    policy.recordLatency(latency);
+                }
+                if(attemptMetrics != null) {
+                    attemptMetrics.onResponse(response.getStatus(), latency);
+                }
+                AsyncRequest.this.completed(this, response);
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                AsyncRequest.this.failed(this, throwable);
+            }
+        }
+    }
+
+    /**
+     * The immutable request headers of a private token, with and without sudo
+     */
+    private static final class Identity {
+        private final String privateToken;
+        private final String tokenHash;
+        private final MultivaluedMap<String, Object> headers;
+        private final Map<String, MultivaluedMap<String, Object>> sudoHeaders = new ConcurrentHashMap<>();
+
+        private Identity(String privateToken) {
+            this.privateToken = privateToken;
+            this.tokenHash = Hashing.sha256().hashString(privateToken, StandardCharsets.UTF_8).toString();
+            this.headers = newHeaders(privateToken, null);
+        }
+
+        MultivaluedMap<String, Object> getHeaders(String sudoUserName) {
+            if(Strings.isNullOrEmpty(sudoUserName)) {
+                return headers;
+            }
+            MultivaluedMap<String, Object> sudo = sudoHeaders.get(sudoUserName);
+            if(sudo == null) {
+                if(sudoHeaders.size() >= MAX_IDENTITIES) {
+                    sudoHeaders.clear();
+                }
+                sudo = sudoHeaders.computeIfAbsent(sudoUserName, user -> newHeaders(privateToken, user));
+            }
+            return sudo;
+        }
+
+        private static MultivaluedMap<String, Object> newHeaders(String privateToken, String sudoUserName) {
+            MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+            headers.add(Constants.PRIVATE_TOKEN_HEADER, privateToken);
+            if (!Strings.isNullOrEmpty(sudoUserName)) {
+                headers.add(Constants.SUDO_HEADER, sudoUserName);
+            }
+            return new ImmutableMultivaluedMap<>(headers);
+        }
+    }
+
+    /**
+     * A blocking call against the gitlab api
+     */
+    @FunctionalInterface
+    interface ServiceCall<T> {
+        T call() throws AuthenticationException;
+    }
+
+    /**
+     * Deserializes a response body held by the persistent cache
+     */
+    @FunctionalInterface
+    private interface BodyReader {
+        Object read(byte[] body) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BodyParser<T> {
+        T parse(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Maps a gitlab api response to the requested type
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(Response response) throws AuthenticationException;
     }
-}
\ No newline at end of file
+}
@@ -32,9 +32,24 @@ public class Constants {
     public final static String X_PAGE = "X-Page";
     public final static String X_PREVIOUS_PAGE = "X-Prev-Page";
     public final static String X_NEXT_PAGE = "X-Next-Page";
+    public final static String LINK = "Link";
+
+    public final static String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+    public final static String RATE_LIMIT_RESET = "RateLimit-Reset";
+    public final static int HTTP_TOO_MANY_REQUESTS = 429;
+
+    public final static String PAGE_PARAM = "page";
+    public final static String PER_PAGE_PARAM = "per_page";
+    public final static String PAGINATION_PARAM = "pagination";
+    public final static String KEYSET_PAGINATION = "keyset";
+    public final static String ORDER_BY_PARAM = "order_by";
+    public final static String SORT_PARAM = "sort";
 
     public final static String SESSION_API_PATH = "session";
     public final static String PROJECTS_API_PATH = "projects";
+    public final static String GROUPS_API_PATH = "groups";
+    public final static String SUBGROUPS_API_PATH = "subgroups";
+    public final static String MEMBERS_API_PATH = "members";
 
 
 }
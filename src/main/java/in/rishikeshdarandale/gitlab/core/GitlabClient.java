@@ -0,0 +1,166 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.google.common.base.Strings;
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Client of a single gitlab host acting with a single private token.
+ *
+ * Instances are immutable and obtained from a {@link GitlabClientRegistry}. All the clients of a registry
+ * share its {@link ConnectionService}, and with it the connection pool, cache, rate limiter and retry policy,
+ * so any number of them can be used in parallel. The private token of the shared service is never used.
+ *
+ * @author Rishikesh Darandale
+ */
+public final class GitlabClient {
+    private final ConnectionService connectionService;
+    private final String apiUrlPrefix;
+    private final String privateToken;
+
+    GitlabClient(ConnectionService connectionService, String apiUrlPrefix, String privateToken) {
+        if(Strings.isNullOrEmpty(apiUrlPrefix) || Strings.isNullOrEmpty(privateToken)) {
+            throw new IllegalArgumentException("Both api url and private token are required");
+        }
+        this.connectionService = connectionService;
+        this.apiUrlPrefix = apiUrlPrefix;
+        this.privateToken = privateToken;
+    }
+
+    public String getApiUrlPrefix() {
+        return apiUrlPrefix;
+    }
+
+    public String getPrivateToken() {
+        return privateToken;
+    }
+
+    /**
+     * @see ConnectionService#invalidate(String, String)
+     */
+    public void invalidate(String apiPath) {
+        connectionService.invalidate(apiUrlPrefix, apiPath);
+    }
+
+    public <T> T getObject(String sudoUserName, String apiPath, Class<T> zClass,
+                           MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return connectionService.getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    /**
+     * @see ConnectionService#getObject(String, String, String, JsonProjection, MultivaluedMap)
+     */
+    public <T> T getObject(String sudoUserName, String apiPath, JsonProjection<T> projection,
+                           MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return connectionService.getObject(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection,
+                queryParams);
+    }
+
+    public <T> PaginatedList<T> getList(String sudoUserName, String apiPath, Class<T> zClass,
+                                        MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return connectionService.getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams);
+    }
+
+    /**
+     * @see ConnectionService#getList(String, String, String, JsonProjection, MultivaluedMap)
+     */
+    public <T> PaginatedList<T> getList(String sudoUserName, String apiPath, JsonProjection<T> projection,
+                                        MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return connectionService.getList(privateToken, sudoUserName, apiUrlPrefix, apiPath, projection,
+                queryParams);
+    }
+
+    /**
+     * @see ConnectionService#streamList(String, String, String, Class, MultivaluedMap, Consumer)
+     */
+    public <T> PaginatedList<T> streamList(String sudoUserName, String apiPath, Class<T> zClass,
+                                           MultivaluedMap<String, Object> queryParams,
+                                           Consumer<? super T> consumer) throws AuthenticationException {
+        return connectionService.streamList(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                queryParams, consumer);
+    }
+
+    public <T> CompletableFuture<T> getObjectAsync(String sudoUserName, String apiPath, Class<T> zClass,
+                                                   MultivaluedMap<String, Object> queryParams) {
+        return connectionService.getObjectAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                queryParams);
+    }
+
+    public <T> CompletableFuture<PaginatedList<T>> getListAsync(String sudoUserName, String apiPath,
+                                                                Class<T> zClass,
+                                                                MultivaluedMap<String, Object> queryParams) {
+        return connectionService.getListAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                queryParams);
+    }
+
+    /**
+     * @see ConnectionService#getAll(String, String, String, Class, MultivaluedMap, int)
+     */
+    public <T> List<T> getAll(String sudoUserName, String apiPath, Class<T> zClass,
+                              MultivaluedMap<String, Object> queryParams, int parallelism)
+            throws AuthenticationException {
+        return connectionService.getAll(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass, queryParams,
+                parallelism);
+    }
+
+    /**
+     * @see ConnectionService#getObjects(String, String, String, Collection, Class, MultivaluedMap, int)
+     */
+    public <T> List<ItemResult<T>> getObjects(String sudoUserName, String apiPathTemplate, Collection<?> ids,
+                                              Class<T> zClass, MultivaluedMap<String, Object> queryParams,
+                                              int concurrency) {
+        return connectionService.getObjects(privateToken, sudoUserName, apiUrlPrefix, apiPathTemplate, ids, zClass,
+                queryParams, concurrency);
+    }
+
+    /**
+     * @see ConnectionService#count(String, String, String, MultivaluedMap)
+     */
+    public Long count(String sudoUserName, String apiPath,
+                      MultivaluedMap<String, Object> queryParams) throws AuthenticationException {
+        return connectionService.count(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+    }
+
+    public CompletableFuture<Long> countAsync(String sudoUserName, String apiPath,
+                                              MultivaluedMap<String, Object> queryParams) {
+        return connectionService.countAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, queryParams);
+    }
+
+    public <T> PaginatedIterable<T> getIterable(String sudoUserName, String apiPath, Class<T> zClass,
+                                                MultivaluedMap<String, Object> queryParams) {
+        return new PaginatedIterable<>(connectionService, privateToken, sudoUserName, apiUrlPrefix, apiPath,
+                zClass, queryParams);
+    }
+
+    /**
+     * @see ConnectionService#getPublisher(String, String, String, Class, MultivaluedMap, int)
+     */
+    public <T> PaginatedPublisher<T> getPublisher(String sudoUserName, String apiPath, Class<T> zClass,
+                                                  MultivaluedMap<String, Object> queryParams, int pagesAhead) {
+        return new PaginatedPublisher<>(connectionService, privateToken, sudoUserName, apiUrlPrefix, apiPath,
+                zClass, queryParams, pagesAhead);
+    }
+}
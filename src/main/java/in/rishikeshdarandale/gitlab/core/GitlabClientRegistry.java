@@ -0,0 +1,118 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.Session;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link GitlabClient} of every (gitlab host, private token) pair in use.
+ *
+ * Looking up a known client is a lock free read, and the clients themselves hold no mutable state, so
+ * requests of different tenants never wait for each other. Closing the registry releases the shared
+ * connection pool.
+ *
+ * @author Rishikesh Darandale
+ */
+public class GitlabClientRegistry implements Closeable {
+    private final ConnectionService connectionService;
+    private final Map<Key, GitlabClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param connectionService service shared by all the clients, usually built using
+     *                          {@link ConnectionService#builder()}
+     */
+    public GitlabClientRegistry(ConnectionService connectionService) {
+        this.connectionService = Objects.requireNonNull(connectionService);
+    }
+
+    public ConnectionService getConnectionService() {
+        return connectionService;
+    }
+
+    /**
+     * @return the client for the host and token, created on first use
+     */
+    public GitlabClient get(String apiUrlPrefix, String privateToken) {
+        Key key = new Key(apiUrlPrefix, privateToken);
+        GitlabClient client = clients.get(key);
+        if(client == null) {
+            client = clients.computeIfAbsent(key, k -> new GitlabClient(connectionService, apiUrlPrefix, privateToken));
+        }
+        return client;
+    }
+
+    /**
+     * Login to Gitlab using username and password and registers a client for the private token received
+     *
+     * @throws AuthenticationException
+     */
+    public GitlabClient login(String apiUrlPrefix, String username, String password) throws AuthenticationException {
+        Session session = connectionService.openSession(apiUrlPrefix, username, password);
+        return get(apiUrlPrefix, session.getPrivateToken());
+    }
+
+    /**
+     * Forgets the client, for example once its token has been revoked
+     */
+    public void remove(String apiUrlPrefix, String privateToken) {
+        clients.remove(new Key(apiUrlPrefix, privateToken));
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    @Override
+    public void close() {
+        clients.clear();
+        connectionService.close();
+    }
+
+    private static final class Key {
+        private final String apiUrlPrefix;
+        private final String privateToken;
+
+        private Key(String apiUrlPrefix, String privateToken) {
+            this.apiUrlPrefix = apiUrlPrefix;
+            this.privateToken = privateToken;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(apiUrlPrefix, key.apiUrlPrefix) && Objects.equals(privateToken, key.privateToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiUrlPrefix, privateToken);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import javax.ws.rs.NotFoundException;
+
+/**
+ * Outcome of fetching a single object of a batch, either the object or the failure of its request
+ *
+ * @author Rishikesh Darandale
+ */
+public final class ItemResult<T> {
+    private final Object id;
+    private final T value;
+    private final Throwable failure;
+
+    private ItemResult(Object id, T value, Throwable failure) {
+        this.id = id;
+        this.value = value;
+        this.failure = failure;
+    }
+
+    static <T> ItemResult<T> success(Object id, T value) {
+        return new ItemResult<>(id, value, null);
+    }
+
+    static <T> ItemResult<T> failure(Object id, Throwable failure) {
+        return new ItemResult<>(id, null, failure);
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * @return the object, or <code>null</code> when the request failed or gitlab returned no object
+     */
+    public T getValue() {
+        return value;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    public boolean isNotFound() {
+        return failure instanceof NotFoundException;
+    }
+
+    public boolean isUnauthorized() {
+        return failure instanceof AuthenticationException;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemResult{" +
+                "id=" + id +
+                ", value=" + value +
+                ", failure=" + failure +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads a json array one element at a time using jackson's incremental parser, so only a single
+ * element is held in memory instead of the complete list.
+ *
+ * @author Rishikesh Darandale
+ */
+final class JsonArrayReader {
+    private JsonArrayReader() {
+    }
+
+    /**
+     * Parses the json array from the stream and hands every element to the consumer as soon as it is read.
+     * The stream is closed once the array has been read.
+     *
+     * @return number of elements read
+     */
+    static <T> int read(InputStream inputStream, Class<T> zClass,
+                        Consumer<? super T> consumer) throws IOException {
+        int count = 0;
+        try (JsonParser parser = JsonSupport.MAPPER.getFactory().createParser(inputStream)) {
+            if(parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException("Expected a json array", parser.getCurrentLocation());
+            }
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                consumer.accept(JsonSupport.MAPPER.readValue(parser, zClass));
+                count++;
+            }
+        }
+        return count;
+    }
+}
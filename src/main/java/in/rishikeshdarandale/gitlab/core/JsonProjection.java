@@ -0,0 +1,141 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binds only the chosen json fields of a model, e.g. the <code>id</code> and <code>path_with_namespace</code>
+ * of a {@link in.rishikeshdarandale.gitlab.model.Project}.
+ *
+ * The other fields of the model are ignored by the deserializer, so the parser skips over their values
+ * without decoding them: no strings are built and no dates are parsed for them. The fields are matched
+ * against the json names, and only apply to the model itself, not to the nested objects.
+ *
+ * Projections are immutable and should be reused, as each of them holds its own deserializers.
+ *
+ * @author Rishikesh Darandale
+ */
+public final class JsonProjection<T> {
+    private final Class<T> zClass;
+    private final Set<String> fields;
+    private final String key;
+    private final ObjectReader objectReader;
+    private final ObjectReader listReader;
+
+    private JsonProjection(Class<T> zClass, Set<String> fields) {
+        this.zClass = zClass;
+        this.fields = fields;
+        this.key = zClass.getName() + '[' + Joiner.on(',').join(fields) + ']';
+        // afterburner names the accessors it generates after the model class, which would then be shared
+        // by every projection of the model, so projections bind through the plain mapper
+        ObjectMapper mapper = JsonSupport.newMapper()
+                .registerModule(new SimpleModule(key).setDeserializerModifier(new ProjectionModifier()));
+        this.objectReader = mapper.reader(zClass);
+        this.listReader = mapper.reader(mapper.getTypeFactory().constructCollectionType(List.class, zClass));
+    }
+
+    /**
+     * @param fields json names of the fields to bind
+     */
+    public static <T> JsonProjection<T> of(Class<T> zClass, String ... fields) {
+        if(fields.length == 0) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        return new JsonProjection<>(zClass, ImmutableSortedSet.copyOf(fields));
+    }
+
+    public Class<T> getType() {
+        return zClass;
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return identifies the projection in cache and coalescing keys
+     */
+    String getKey() {
+        return key;
+    }
+
+    public T readObject(InputStream inputStream) throws IOException {
+        return objectReader.readValue(inputStream);
+    }
+
+    public T readObject(byte[] body) throws IOException {
+        return objectReader.readValue(body);
+    }
+
+    public List<T> readList(InputStream inputStream) throws IOException {
+        return listReader.readValue(inputStream);
+    }
+
+    public List<T> readList(byte[] body) throws IOException {
+        return listReader.readValue(body);
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    /**
+     * Turns the properties of the model which are not projected into ignored ones
+     */
+    private class ProjectionModifier extends BeanDeserializerModifier {
+
+        @Override
+        public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc,
+                                                     BeanDeserializerBuilder builder) {
+            if(beanDesc.getBeanClass() != zClass) {
+                return builder;
+            }
+            List<SettableBeanProperty> ignored = new ArrayList<>();
+            for(Iterator<SettableBeanProperty> properties = builder.getProperties(); properties.hasNext(); ) {
+                SettableBeanProperty property = properties.next();
+                if(!fields.contains(property.getName())) {
+                    ignored.add(property);
+                }
+            }
+            for(SettableBeanProperty property : ignored) {
+                builder.removeProperty(property.getFullName());
+                builder.addIgnorable(property.getName());
+            }
+            return builder;
+        }
+    }
+}
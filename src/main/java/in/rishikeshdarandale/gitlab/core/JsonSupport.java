@@ -0,0 +1,57 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Holds the object mapper shared by jersey, through {@link ObjectMapperProvider}, and by the parts of the
+ * library which bind json outside of jersey.
+ *
+ * The mapper binds the models through bytecode generated accessors instead of reflection, and ignores the
+ * fields it does not know about so that new fields sent by gitlab do not break older clients.
+ *
+ * @author Rishikesh Darandale
+ */
+final class JsonSupport {
+    static final ObjectMapper MAPPER = newMapper().registerModule(new AfterburnerModule());
+
+    private JsonSupport() {
+    }
+
+    /**
+     * @return a mapper configured like the shared one, without the generated accessors
+     */
+    static ObjectMapper newMapper() {
+        return new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    static <T> T readObject(byte[] body, Class<T> zClass) throws IOException {
+        return MAPPER.readValue(body, zClass);
+    }
+
+    static <T> List<T> readList(byte[] body, Class<T> zClass) throws IOException {
+        return MAPPER.readValue(body, MAPPER.getTypeFactory().constructCollectionType(List.class, zClass));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazy view over all the pages of a list api.
+ *
+ * Pages are only requested when the items are consumed, and while the items of page N are processed
+ * page N+1 is already being fetched in the background. The spliterator splits on page boundaries, so
+ * the {@link #stream()} can be used in parallel.
+ *
+ * Failures while fetching the pages are reported as {@link ProcessingException}.
+ *
+ * @author Rishikesh Darandale
+ */
+public class PaginatedIterable<T> implements Iterable<T> {
+    private final ConnectionService connectionService;
+    private final String privateToken;
+    private final String sudoUserName;
+    private final String apiUrlPrefix;
+    private final String apiPath;
+    private final Class<T> zClass;
+    private final MultivaluedMap<String, Object> queryParams;
+
+    PaginatedIterable(ConnectionService connectionService, String privateToken, String sudoUserName,
+                      String apiUrlPrefix, String apiPath, Class<T> zClass,
+                      MultivaluedMap<String, Object> queryParams) {
+        this.connectionService = connectionService;
+        this.privateToken = privateToken;
+        this.sudoUserName = sudoUserName;
+        this.apiUrlPrefix = apiUrlPrefix;
+        this.apiPath = apiPath;
+        this.zClass = zClass;
+        this.queryParams = queryParams;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new PageSpliterator();
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    private CompletableFuture<PaginatedList<T>> fetch(MultivaluedMap<String, Object> pageParams) {
+        return connectionService.getListAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                pageParams);
+    }
+
+    private class PageSpliterator implements Spliterator<T> {
+        private Iterator<T> current = Collections.emptyIterator();
+        private CompletableFuture<PaginatedList<T>> next;
+        private boolean started;
+        private int pageCount;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while(!current.hasNext()) {
+                if(!nextPage()) {
+                    return false;
+                }
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            do {
+                current.forEachRemaining(action);
+            } while (nextPage());
+        }
+
+        /**
+         * Hands over the rest of the current page, while this spliterator continues with the next page.
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            while(!current.hasNext()) {
+                if(!nextPage()) {
+                    return null;
+                }
+            }
+            Spliterator<T> page = Spliterators.spliteratorUnknownSize(current, Spliterator.ORDERED);
+            current = Collections.emptyIterator();
+            return page;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED;
+        }
+
+        private boolean nextPage() {
+            if(!started) {
+                started = true;
+                next = fetch(connectionService.firstPage(queryParams));
+            }
+            if(next == null) {
+                return false;
+            }
+            PaginatedList<T> page = await(next);
+            pageCount++;
+            if(page == null) {
+                if(pageCount > 1) {
+                    throw new ProcessingException("Unable to fetch page " + pageCount);
+                }
+                next = null;
+                return false;
+            }
+            // prefetch the following page while the caller is busy with this one
+            MultivaluedMap<String, Object> pageParams = connectionService.nextPage(queryParams, page);
+            next = pageParams == null ? null : fetch(pageParams);
+            List<T> tList = page.gettList();
+            current = tList == null ? Collections.<T>emptyIterator() : tList.iterator();
+            return true;
+        }
+
+        private PaginatedList<T> await(CompletableFuture<PaginatedList<T>> future) {
+            try {
+                return ConnectionService.await(future);
+            } catch (AuthenticationException e) {
+                throw new ProcessingException(e);
+            }
+        }
+    }
+}
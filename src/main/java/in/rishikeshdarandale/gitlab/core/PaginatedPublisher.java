@@ -0,0 +1,233 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive Streams publisher of all the items of a list api.
+ *
+ * Every subscriber gets its own walk over the pages. Pages are fetched one after another, and only once the
+ * subscriber has requested items: a page is requested from gitlab when the demand exceeds the buffered
+ * items, or to keep up to <code>pagesAhead</code> pages buffered. Cancelling the subscription stops the walk,
+ * a page already in flight is dropped when it arrives.
+ *
+ * Failures while fetching the pages are signalled through {@link Subscriber#onError(Throwable)}.
+ *
+ * @author Rishikesh Darandale
+ */
+public class PaginatedPublisher<T> implements Publisher<T> {
+    private final ConnectionService connectionService;
+    private final String privateToken;
+    private final String sudoUserName;
+    private final String apiUrlPrefix;
+    private final String apiPath;
+    private final Class<T> zClass;
+    private final MultivaluedMap<String, Object> queryParams;
+    private final int pagesAhead;
+
+    PaginatedPublisher(ConnectionService connectionService, String privateToken, String sudoUserName,
+                       String apiUrlPrefix, String apiPath, Class<T> zClass,
+                       MultivaluedMap<String, Object> queryParams, int pagesAhead) {
+        if(pagesAhead < 0) {
+            throw new IllegalArgumentException("pagesAhead should not be negative");
+        }
+        this.connectionService = connectionService;
+        this.privateToken = privateToken;
+        this.sudoUserName = sudoUserName;
+        this.apiUrlPrefix = apiUrlPrefix;
+        this.apiPath = apiPath;
+        this.zClass = zClass;
+        this.queryParams = queryParams;
+        this.pagesAhead = pagesAhead;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if(subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private CompletableFuture<PaginatedList<T>> fetch(MultivaluedMap<String, Object> pageParams) {
+        return connectionService.getListAsync(privateToken, sudoUserName, apiUrlPrefix, apiPath, zClass,
+                pageParams);
+    }
+
+    /**
+     * All the signals to the subscriber are sent from {@link #drain()}, which only ever runs on one thread
+     * at a time; the fields without modifiers are only touched there.
+     */
+    private class PageSubscription implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<Iterator<T>> pages = new ArrayDeque<>();
+        private volatile boolean started;
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<PaginatedList<T>> inFlight;
+        private volatile Throwable invalidRequest;
+        private long bufferedItems;
+        // query params of the next page, null once the last page was fetched
+        private MultivaluedMap<String, Object> nextPage = connectionService.firstPage(queryParams);
+        private int pageCount;
+        private boolean done;
+
+        private PageSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " items, should be positive");
+            } else {
+                long current;
+                do {
+                    current = requested.get();
+                } while(!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+                started = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if(wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if(!done) {
+                    if(cancelled) {
+                        terminate();
+                    } else if(invalidRequest != null) {
+                        fail(invalidRequest);
+                    } else {
+                        emit();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while(missed != 0);
+        }
+
+        private void emit() {
+            CompletableFuture<PaginatedList<T>> page = inFlight;
+            if(page != null && page.isDone()) {
+                inFlight = null;
+                if(!receive(page)) {
+                    return;
+                }
+            }
+            long demand = requested.get();
+            long emitted = 0;
+            while(emitted != demand && bufferedItems > 0) {
+                if(cancelled) {
+                    terminate();
+                    return;
+                }
+                Iterator<T> items = pages.peekFirst();
+                T item = items.next();
+                if(!items.hasNext()) {
+                    pages.removeFirst();
+                }
+                bufferedItems--;
+                emitted++;
+                subscriber.onNext(item);
+            }
+            if(emitted != 0 && demand != Long.MAX_VALUE) {
+                demand = requested.addAndGet(-emitted);
+            }
+            if(bufferedItems == 0 && inFlight == null && nextPage == null) {
+                done = true;
+                subscriber.onComplete();
+            } else if(started && inFlight == null && nextPage != null && !cancelled
+                    && (demand > bufferedItems || pages.size() < pagesAhead)) {
+                CompletableFuture<PaginatedList<T>> next = fetch(nextPage);
+                inFlight = next;
+                next.whenComplete((tList, throwable) -> drain());
+            }
+        }
+
+        /**
+         * Buffers the items of the page that arrived
+         *
+         * @return <code>false</code> if the subscription failed
+         */
+        private boolean receive(CompletableFuture<PaginatedList<T>> future) {
+            PaginatedList<T> page;
+            try {
+                page = future.join();
+            } catch (CompletionException e) {
+                fail(e.getCause() == null ? e : e.getCause());
+                return false;
+            } catch (RuntimeException e) {
+                fail(e);
+                return false;
+            }
+            pageCount++;
+            if(page == null) {
+                if(pageCount > 1) {
+                    fail(new ProcessingException("Unable to fetch page " + pageCount));
+                    return false;
+                }
+                nextPage = null;
+                return true;
+            }
+            nextPage = connectionService.nextPage(queryParams, page);
+            if(page.gettList() != null && !page.gettList().isEmpty()) {
+                pages.addLast(page.gettList().iterator());
+                bufferedItems += page.gettList().size();
+            }
+            return true;
+        }
+
+        private void fail(Throwable throwable) {
+            terminate();
+            subscriber.onError(throwable);
+        }
+
+        private void terminate() {
+            done = true;
+            pages.clear();
+            bufferedItems = 0;
+            inFlight = null;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Persistent tier of the {@link ResponseCache} which keeps the response bodies along with their
+ * validators and pagination headers on disk, so that a restarted process can revalidate with
+ * <code>If-None-Match</code> instead of downloading everything again.
+ *
+ * Responses are appended to memory mapped segment files. The index of the latest record for every key
+ * is kept in memory and rebuilt by scanning the segments when the store is opened. Once the number of
+ * segments exceeds the configured maximum, the oldest segment is dropped along with its records. Every
+ * length read from a record is checked against the end of the record, so a torn or corrupted segment only
+ * loses its records from the first bad one on.
+ *
+ * @author Rishikesh Darandale
+ */
+public class PersistentResponseStore implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentResponseStore.class);
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    private static final int RECORD_MAGIC = 0x474c5253;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private long nextSegmentId;
+
+    public PersistentResponseStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param directory directory holding the segment files, created if it does not exist
+     * @param segmentSize size in bytes of a single segment file
+     * @param maxSegments maximum number of segment files to keep
+     */
+    public PersistentResponseStore(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if(segmentSize <= RECORD_HEADER_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException("Invalid segment size or maximum segments");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * @return number of responses held by the store
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Removes all the responses from the store along with their segment files
+     */
+    public synchronized void clear() throws IOException {
+        while(!segments.isEmpty()) {
+            dropOldestSegment();
+        }
+    }
+
+    /**
+     * Flushes the segments to the disk and releases them
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for(Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+        index.clear();
+    }
+
+    synchronized CachedResponse get(String key) {
+        Location location = index.get(key);
+        if(location == null) {
+            return null;
+        }
+        Record record;
+        try {
+            record = readRecord(location.segment.buffer, location.offset, true);
+        } catch (BufferUnderflowException e) {
+            LOG.warn("Dropping the corrupted response of {}", key);
+            index.remove(key);
+            return null;
+        }
+        return key.equals(record.key) ? record.response : null;
+    }
+
+    /**
+     * Forgets the responses of the matching keys. Their records stay in the segments, so they are found again
+     * once the store is reopened, which only costs a conditional request.
+     */
+    synchronized void invalidate(Predicate<String> keys) {
+        index.keySet().removeIf(keys);
+    }
+
+    synchronized void put(String key, CachedResponse response) {
+        byte[] payload;
+        try {
+            payload = encode(key, response);
+        } catch (IOException e) {
+            LOG.warn("Unable to encode the response for {}", key, e);
+            return;
+        }
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if(recordSize > segmentSize) {
+            LOG.debug("Response for {} does not fit in a segment, skipping", key);
+            return;
+        }
+        try {
+            Segment segment = segments.peekLast();
+            if(segment == null || segment.remaining() < recordSize) {
+                segment = createSegment();
+            }
+            int offset = segment.writePosition;
+            ByteBuffer record = segment.buffer.duplicate();
+            record.position(offset + 4);
+            record.putInt(payload.length);
+            record.put(payload);
+            if(record.remaining() >= 4) {
+                // ends the scan here, the bytes after a truncated record may still hold older records
+                record.putInt(0);
+            }
+            // the magic is written last, so a partially written record is ignored when the store is loaded
+            record.putInt(offset, RECORD_MAGIC);
+            segment.writePosition = offset + recordSize;
+            index.put(key, new Location(segment, offset));
+        } catch (IOException e) {
+            LOG.warn("Unable to store the response for {}", key, e);
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for(Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files, (first, second) -> Long.compare(getSegmentId(first), getSegmentId(second)));
+        for(Path file : files) {
+            long id = getSegmentId(file);
+            Segment segment = openSegment(file, (int) Math.max(Files.size(file), RECORD_HEADER_SIZE));
+            scan(segment);
+            segments.addLast(segment);
+            nextSegmentId = id + 1;
+        }
+        while(segments.size() > maxSegments) {
+            dropOldestSegment();
+        }
+        LOG.debug("Loaded {} responses from {} segments", index.size(), segments.size());
+    }
+
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while(offset + RECORD_HEADER_SIZE <= buffer.capacity() && buffer.getInt(offset) == RECORD_MAGIC) {
+            Record record;
+            try {
+                record = readRecord(buffer, offset, false);
+            } catch (BufferUnderflowException e) {
+                LOG.warn("Segment {} is corrupted at {}, dropping the records from there", segment.file, offset);
+                break;
+            }
+            index.put(record.key, new Location(segment, offset));
+            offset += RECORD_HEADER_SIZE + record.length;
+        }
+        // the next records are written over the first bad one
+        segment.writePosition = offset;
+    }
+
+    private Segment createSegment() throws IOException {
+        long id = nextSegmentId++;
+        Segment segment = openSegment(directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX), segmentSize);
+        segments.addLast(segment);
+        while(segments.size() > maxSegments) {
+            dropOldestSegment();
+        }
+        return segment;
+    }
+
+    private Segment openSegment(Path file, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    private void dropOldestSegment() throws IOException {
+        Segment segment = segments.removeFirst();
+        Iterator<Location> locations = index.values().iterator();
+        while(locations.hasNext()) {
+            if(locations.next().segment == segment) {
+                locations.remove();
+            }
+        }
+        segment.channel.close();
+        Files.deleteIfExists(segment.file);
+    }
+
+    private long getSegmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private byte[] encode(String key, CachedResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(response.getBody().length + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, key);
+        writeString(out, response.getETag());
+        writeString(out, response.getLastModified());
+        out.writeInt(response.getHeaders().size());
+        for(Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
+        }
+        out.writeInt(response.getBody().length);
+        out.write(response.getBody());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the record at the offset, every length being checked against the end of the record
+     *
+     * @param withResponse whether the response is read as well, or only checked
+     * @throws BufferUnderflowException when the record is torn or corrupted
+     */
+    private static Record readRecord(ByteBuffer buffer, int offset, boolean withResponse) {
+        int length = buffer.getInt(offset + 4);
+        if(length < 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.limit(offset + RECORD_HEADER_SIZE + length);
+        record.position(offset + RECORD_HEADER_SIZE);
+        String key = readString(record);
+        if(key == null) {
+            throw new BufferUnderflowException();
+        }
+        String eTag = readString(record);
+        String lastModified = readString(record);
+        int headerCount = record.getInt();
+        // every header holds at least the lengths of its name and value
+        if(headerCount < 0 || headerCount > record.remaining() / 8) {
+            throw new BufferUnderflowException();
+        }
+        Map<String, String> headers = new HashMap<>(headerCount);
+        for(int i = 0; i < headerCount; i++) {
+            headers.put(readString(record), readString(record));
+        }
+        // the body ends the record
+        if(record.getInt() != record.remaining()) {
+            throw new BufferUnderflowException();
+        } else if(!withResponse) {
+            return new Record(key, length, null);
+        }
+        byte[] body = new byte[record.remaining()];
+        record.get(body);
+        return new Record(key, length, new CachedResponse(null, body, eTag, lastModified, headers));
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = readBytes(record);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer record) {
+        int length = record.getInt();
+        if(length < 0) {
+            return null;
+        } else if(length > record.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return bytes;
+    }
+
+    private static class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+    }
+
+    private static class Record {
+        private final String key;
+        private final int length;
+        private final CachedResponse response;
+
+        private Record(String key, int length, CachedResponse response) {
+            this.key = key;
+            this.length = length;
+            this.response = response;
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final int offset;
+
+        private Location(Segment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+/**
+ * Receives the lifecycle of every GET request sent by a {@link ConnectionService}.
+ *
+ * Callbacks are invoked on the thread sending or completing the request, so implementations should be
+ * thread safe and return quickly. Failures of a listener are logged and otherwise ignored.
+ *
+ * @author Rishikesh Darandale
+ * @see RequestMetricsRecorder
+ */
+public interface RequestListener {
+
+    /**
+     * Invoked before the request is sent for the first time
+     */
+    default void onRequestStart(RequestMetrics metrics) {
+    }
+
+    /**
+     * Invoked once the response has been read, or the request has failed
+     */
+    default void onRequestEnd(RequestMetrics metrics) {
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+
+/**
+ * Timings and counters of a single GET request, including its retries.
+ *
+ * The time to first byte covers the connection (or its lease from the pool) and the wait for the response
+ * headers of the last attempt, jax-rs does not expose the connect time on its own. The deserialization time
+ * covers reading the body from the connection along with its mapping to objects.
+ *
+ * @author Rishikesh Darandale
+ */
+public class RequestMetrics {
+    static final String PROPERTY = RequestMetrics.class.getName();
+
+    private final String apiUrlPrefix;
+    private final String apiPath;
+    private final long startedAt = System.nanoTime();
+    private long totalNanos;
+    private long timeToFirstByteNanos;
+    private long deserializationNanos;
+    private long bytesRead;
+    private long bytesDecoded;
+    private int status;
+    private int retries;
+    private int entityReads;
+    private boolean page;
+    private Throwable failure;
+
+    RequestMetrics(String apiUrlPrefix, String apiPath) {
+        this.apiUrlPrefix = apiUrlPrefix;
+        this.apiPath = apiPath;
+    }
+
+    public String getApiUrlPrefix() {
+        return apiUrlPrefix;
+    }
+
+    public String getApiPath() {
+        return apiPath;
+    }
+
+    /**
+     * @return status of the last response, or zero when no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    public long getDeserializationNanos() {
+        return deserializationNanos;
+    }
+
+    /**
+     * @return number of body bytes received, compressed when gitlab compressed the response
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return number of body bytes once decompressed, equal to the bytes read for uncompressed responses
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    /**
+     * @return number of times the request was sent again, because it failed or was throttled
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return whether the response was a page of a list api
+     */
+    public boolean isPage() {
+        return page;
+    }
+
+    /**
+     * @return the failure of the request, or <code>null</code> when a response was read
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    void onResponse(int status, long timeToFirstByteNanos) {
+        this.status = status;
+        this.timeToFirstByteNanos = timeToFirstByteNanos;
+    }
+
+    void onRetry() {
+        retries++;
+    }
+
+    void onRead(long bytes) {
+        this.bytesRead += bytes;
+    }
+
+    void onDecoded(long bytes) {
+        this.bytesDecoded += bytes;
+    }
+
+    void onDeserialization(long nanos) {
+        this.deserializationNanos += nanos;
+    }
+
+    /**
+     * @return whether this is the first read of the entity, a buffered entity read again being measured already
+     */
+    boolean onEntityRead() {
+        return ++entityReads == 1;
+    }
+
+    boolean isEntityReadAgain() {
+        return entityReads > 1;
+    }
+
+    /**
+     * @return empty metrics of another attempt of the same request, sent concurrently with this one
+     */
+    RequestMetrics newAttempt() {
+        return new RequestMetrics(apiUrlPrefix, apiPath);
+    }
+
+    /**
+     * Takes over the response and the retries of the attempt whose response is used
+     */
+    void onAttempt(RequestMetrics attempt) {
+        this.status = attempt.status;
+        this.timeToFirstByteNanos = attempt.timeToFirstByteNanos;
+        this.retries += attempt.retries;
+    }
+
+    void onEnd(Object result, Throwable failure) {
+        this.totalNanos = System.nanoTime() - startedAt;
+        this.page = result instanceof PaginatedList;
+        this.failure = failure;
+    }
+}
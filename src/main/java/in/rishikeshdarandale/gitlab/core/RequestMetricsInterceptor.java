@@ -0,0 +1,127 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures the bytes read and the time spent reading the entities of the requests carrying
+ * {@link RequestMetrics}, other requests are left untouched.
+ *
+ * This interceptor runs before the content decoders, so it counts the bytes as received from gitlab,
+ * while {@link Decoded} runs after them and counts the bytes once decompressed. Only the first read of an
+ * entity is measured.
+ *
+ * @author Rishikesh Darandale
+ */
+@Priority(Priorities.ENTITY_CODER - 1)
+class RequestMetricsInterceptor implements ReaderInterceptor {
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        Object metrics = context.getProperty(RequestMetrics.PROPERTY);
+        if(!(metrics instanceof RequestMetrics)) {
+            return context.proceed();
+        }
+        RequestMetrics requestMetrics = (RequestMetrics) metrics;
+        if(!requestMetrics.onEntityRead()) {
+            // the entity buffered for the persistent cache is read again as bytes, which were counted already
+            return context.proceed();
+        }
+        context.setInputStream(new CountingInputStream(context.getInputStream(), requestMetrics, false));
+        long startedAt = System.nanoTime();
+        try {
+            return context.proceed();
+        } finally {
+            requestMetrics.onDeserialization(System.nanoTime() - startedAt);
+        }
+    }
+
+    @Priority(Priorities.ENTITY_CODER + 1)
+    static class Decoded implements ReaderInterceptor {
+
+        @Override
+        public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+            Object metrics = context.getProperty(RequestMetrics.PROPERTY);
+            if(metrics instanceof RequestMetrics && !((RequestMetrics) metrics).isEntityReadAgain()) {
+                context.setInputStream(new CountingInputStream(context.getInputStream(), (RequestMetrics) metrics,
+                        true));
+            }
+            return context.proceed();
+        }
+    }
+
+    /**
+     * Counts the bytes as they are consumed, so streamed entities keep counting after the entity is read
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final RequestMetrics metrics;
+        private final boolean decoded;
+
+        private CountingInputStream(InputStream in, RequestMetrics metrics, boolean decoded) {
+            super(in);
+            this.metrics = metrics;
+            this.decoded = decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if(read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long bytes) {
+            if(decoded) {
+                metrics.onDecoded(bytes);
+            } else {
+                metrics.onRead(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In process {@link RequestListener} keeping counters and latency histograms per api path.
+ *
+ * Numeric path segments are replaced by <code>:id</code>, so <code>projects/12/members</code> and
+ * <code>projects/13/members</code> share the same metrics. Recording is lock free, the histograms are
+ * recorded in microseconds and handed out as copies so they can be scraped at any time.
+ *
+ * @author Rishikesh Darandale
+ */
+public class RequestMetricsRecorder implements RequestListener {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequestStart(RequestMetrics metrics) {
+        getOrCreate(metrics.getApiPath()).inFlight.increment();
+    }
+
+    @Override
+    public void onRequestEnd(RequestMetrics metrics) {
+        getOrCreate(metrics.getApiPath()).record(metrics);
+    }
+
+    /**
+     * @return metrics of every api path requested so far, keyed by the normalized path
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * @return metrics of the api path, or <code>null</code> if it was never requested
+     */
+    public EndpointMetrics getEndpoint(String apiPath) {
+        return endpoints.get(normalize(apiPath));
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private EndpointMetrics getOrCreate(String apiPath) {
+        String path = normalize(apiPath);
+        EndpointMetrics endpoint = endpoints.get(path);
+        if(endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(path, p -> new EndpointMetrics());
+        }
+        return endpoint;
+    }
+
+    static String normalize(String apiPath) {
+        String path = apiPath.startsWith("/") ? apiPath.substring(1) : apiPath;
+        StringBuilder normalized = null;
+        int start = 0;
+        while(start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if(end == -1) {
+                end = path.length();
+            }
+            if(end > start && isNumeric(path, start, end)) {
+                if(normalized == null) {
+                    normalized = new StringBuilder(path.length());
+                    normalized.append(path, 0, start);
+                }
+                normalized.append(":id");
+            } else if(normalized != null) {
+                normalized.append(path, start, end);
+            }
+            if(normalized != null && end < path.length()) {
+                normalized.append('/');
+            }
+            start = end + 1;
+        }
+        return normalized == null ? path : normalized.toString();
+    }
+
+    private static boolean isNumeric(String path, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(!Character.isDigit(path.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counters and histograms of a single api path
+     */
+    public static class EndpointMetrics {
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesDecoded = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final AtomicLongArray statuses = new AtomicLongArray(600);
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+        private final Histogram timeToFirstByte = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+        private final Histogram deserialization = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+
+        private EndpointMetrics() {
+        }
+
+        private void record(RequestMetrics metrics) {
+            inFlight.decrement();
+            requests.increment();
+            if(metrics.getFailure() != null) {
+                failures.increment();
+            }
+            if(metrics.getStatus() > 0 && metrics.getStatus() < statuses.length()) {
+                statuses.incrementAndGet(metrics.getStatus());
+            }
+            if(metrics.isPage()) {
+                pages.increment();
+            }
+            bytesRead.add(metrics.getBytesRead());
+            bytesDecoded.add(metrics.getBytesDecoded());
+            retries.add(metrics.getRetries());
+            recordMicros(latency, metrics.getTotalNanos());
+            if(metrics.getStatus() > 0) {
+                recordMicros(timeToFirstByte, metrics.getTimeToFirstByteNanos());
+                recordMicros(deserialization, metrics.getDeserializationNanos());
+            }
+        }
+
+        private static void recordMicros(Histogram histogram, long nanos) {
+            histogram.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        }
+
+        public long getInFlightCount() {
+            return inFlight.sum();
+        }
+
+        public long getRequestCount() {
+            return requests.sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        /**
+         * @return number of body bytes received from gitlab
+         */
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        /**
+         * @return number of body bytes once decompressed, the difference with {@link #getBytesRead()} is
+         * the transfer saved by compression
+         */
+        public long getBytesDecoded() {
+            return bytesDecoded.sum();
+        }
+
+        public long getPageCount() {
+            return pages.sum();
+        }
+
+        public long getRetryCount() {
+            return retries.sum();
+        }
+
+        public long getStatusCount(int status) {
+            return status > 0 && status < statuses.length() ? statuses.get(status) : 0;
+        }
+
+        /**
+         * @return number of responses by status, for the statuses received at least once
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            for(int status = 100; status < statuses.length(); status++) {
+                long count = statuses.get(status);
+                if(count > 0) {
+                    counts.put(status, count);
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * @return histogram of the whole request, retries included, in microseconds
+         */
+        public Histogram getLatency() {
+            return latency.copy();
+        }
+
+        /**
+         * @return histogram of the time until the response headers were received, in microseconds
+         */
+        public Histogram getTimeToFirstByte() {
+            return timeToFirstByte.copy();
+        }
+
+        /**
+         * @return histogram of the time spent reading and mapping the response body, in microseconds
+         */
+        public Histogram getDeserialization() {
+            return deserialization.copy();
+        }
+    }
+}
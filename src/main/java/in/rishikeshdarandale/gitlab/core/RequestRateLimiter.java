@@ -0,0 +1,209 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side token bucket limiting the requests sent to a gitlab instance.
+ *
+ * A bucket is kept per api url prefix, and optionally per private token. The rate of a bucket adapts to
+ * the <code>RateLimit-Remaining</code>/<code>RateLimit-Reset</code> headers sent by gitlab, is halved on a
+ * <code>429 Too Many Requests</code> and slowly grows back to the configured rate afterwards. A
+ * <code>Retry-After</code> header pauses the bucket, callers are queued until the pause is over and the
+ * throttled request is sent again. Async requests wait on a scheduler instead, so that they never block
+ * their caller.
+ *
+ * @author Rishikesh Darandale
+ */
+public class RequestRateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestRateLimiter.class);
+    private static final double MINIMUM_RATE = 0.1;
+    private static final double RECOVERY_FACTOR = 1.1;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    private final double permitsPerSecond;
+    private final boolean perToken;
+    private final int maxRetries;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond maximum number of requests per second sent to a gitlab instance
+     */
+    public RequestRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, false, 5);
+    }
+
+    /**
+     * @param permitsPerSecond maximum number of requests per second sent to a gitlab instance
+     * @param perToken whether every private token gets its own bucket
+     * @param maxRetries number of times a throttled request is sent again before the 429 is reported
+     */
+    public RequestRateLimiter(double permitsPerSecond, boolean perToken, int maxRetries) {
+        if(permitsPerSecond < MINIMUM_RATE || maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid rate or retries");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.perToken = perToken;
+        this.maxRetries = maxRetries;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @return the current rate of the bucket for the given instance and token
+     */
+    public double getRate(String apiUrlPrefix, String privateToken) {
+        return getBucket(apiUrlPrefix, privateToken).limiter.getRate();
+    }
+
+    /**
+     * Waits until the bucket allows another request to be sent
+     */
+    void acquire(String apiUrlPrefix, String privateToken) {
+        Bucket bucket = getBucket(apiUrlPrefix, privateToken);
+        long pause = bucket.pausedUntil - System.nanoTime();
+        if(pause > 0) {
+            Uninterruptibles.sleepUninterruptibly(pause, TimeUnit.NANOSECONDS);
+        }
+        bucket.limiter.acquire();
+    }
+
+    /**
+     * Takes a permit when the bucket allows another request to be sent right away, never waits for it.
+     *
+     * @return <code>0</code> once the permit is taken, otherwise the nanoseconds to wait before trying again
+     */
+    long tryAcquire(String apiUrlPrefix, String privateToken) {
+        Bucket bucket = getBucket(apiUrlPrefix, privateToken);
+        long pause = bucket.pausedUntil - System.nanoTime();
+        if(pause > 0) {
+            return pause;
+        }
+        if(bucket.limiter.tryAcquire()) {
+            return 0;
+        }
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / bucket.limiter.getRate()));
+    }
+
+    /**
+     * Adapts the bucket to the rate limit headers of the response.
+     *
+     * @return <code>true</code> if the request has been throttled and should be sent again
+     */
+    boolean onResponse(String apiUrlPrefix, String privateToken, Response response) {
+        Bucket bucket = getBucket(apiUrlPrefix, privateToken);
+        RateLimiter limiter = bucket.limiter;
+        if(response.getStatus() == Constants.HTTP_TOO_MANY_REQUESTS) {
+            long retryAfter = getRetryAfterMillis(response);
+            bucket.pausedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfter);
+            limiter.setRate(Math.max(MINIMUM_RATE, limiter.getRate() / 2));
+            LOG.debug("Throttled by {}, pausing for {} ms", apiUrlPrefix, retryAfter);
+            return true;
+        }
+        Long remaining = parseLong(response.getHeaderString(Constants.RATE_LIMIT_REMAINING));
+        Long reset = parseLong(response.getHeaderString(Constants.RATE_LIMIT_RESET));
+        double rate;
+        if(remaining != null && reset != null) {
+            long window = Math.max(1, reset - TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+            rate = (double) remaining / window;
+        } else {
+            rate = limiter.getRate() * RECOVERY_FACTOR;
+        }
+        rate = Math.max(MINIMUM_RATE, Math.min(permitsPerSecond, rate));
+        if(rate != limiter.getRate()) {
+            limiter.setRate(rate);
+        }
+        return false;
+    }
+
+    private Bucket getBucket(String apiUrlPrefix, String privateToken) {
+        String key = perToken ? apiUrlPrefix + '#' + Strings.nullToEmpty(privateToken) : apiUrlPrefix;
+        Bucket bucket = buckets.get(key);
+        if(bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(RateLimiter.create(permitsPerSecond)));
+        }
+        return bucket;
+    }
+
+    /**
+     * Reads <code>Retry-After</code> given either in seconds or as a http date, falling back to
+     * <code>RateLimit-Reset</code>
+     */
+    private long getRetryAfterMillis(Response response) {
+        String retryAfter = response.getHeaderString(HttpHeaders.RETRY_AFTER);
+        Long seconds = parseLong(retryAfter);
+        if(seconds != null) {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, seconds));
+        }
+        if(!Strings.isNullOrEmpty(retryAfter)) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException e) {
+                LOG.debug("Ignoring invalid Retry-After header {}", retryAfter);
+            }
+        }
+        Long reset = parseLong(response.getHeaderString(Constants.RATE_LIMIT_RESET));
+        if(reset != null) {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(reset) - System.currentTimeMillis());
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
+    private Long parseLong(String value) {
+        if(Strings.isNullOrEmpty(value)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Bucket {
+        private final RateLimiter limiter;
+        private volatile long pausedUntil;
+
+        private Bucket(RateLimiter limiter) {
+            this.limiter = limiter;
+            this.pausedUntil = System.nanoTime();
+        }
+    }
+}
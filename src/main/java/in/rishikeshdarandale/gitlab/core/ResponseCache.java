@@ -0,0 +1,117 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of gitlab api responses used for conditional requests.
+ *
+ * Entries are evicted once the cache grows beyond its maximum size (least recently used first) or once
+ * their time to live has elapsed. While an entry is present, the request is sent with
+ * <code>If-None-Match</code>/<code>If-Modified-Since</code> and the cached object is served when gitlab
+ * replies with <code>304 Not Modified</code>. Cached objects are shared between callers, so they should be
+ * treated as read only.
+ *
+ * When a {@link PersistentResponseStore} is given, the response bodies are written to it as well and it is
+ * consulted on a miss, so the cached responses survive a restart of the process.
+ *
+ * @author Rishikesh Darandale
+ */
+public class ResponseCache {
+    private final Cache<String, CachedResponse> cache;
+    private final PersistentResponseStore store;
+
+    /**
+     * @param maximumSize maximum number of responses to keep
+     * @param timeToLive how long a response is kept after it has been stored
+     * @param unit unit of the time to live
+     */
+    public ResponseCache(long maximumSize, long timeToLive, TimeUnit unit) {
+        this(maximumSize, timeToLive, unit, null);
+    }
+
+    /**
+     * @param maximumSize maximum number of responses to keep in memory
+     * @param timeToLive how long a response is kept in memory after it has been stored
+     * @param unit unit of the time to live
+     * @param store persistent tier behind the in memory cache
+     */
+    public ResponseCache(long maximumSize, long timeToLive, TimeUnit unit, PersistentResponseStore store) {
+        this.store = store;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit)
+                .recordStats()
+                .build();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Drops the responses of the matching keys from both tiers
+     */
+    void invalidate(Predicate<String> keys) {
+        cache.asMap().keySet().removeIf(keys);
+        if(store != null) {
+            store.invalidate(keys);
+        }
+    }
+
+    boolean isPersistent() {
+        return store != null;
+    }
+
+    CachedResponse get(String key) {
+        CachedResponse response = cache.getIfPresent(key);
+        if(response == null && store != null) {
+            response = store.get(key);
+        }
+        return response;
+    }
+
+    void put(String key, CachedResponse response) {
+        cache.put(key, response);
+        if(store != null && response.getBody() != null) {
+            store.put(key, response);
+        }
+    }
+
+    /**
+     * Keeps a response read from the persistent tier in memory, without writing it to the disk again
+     */
+    void promote(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+}
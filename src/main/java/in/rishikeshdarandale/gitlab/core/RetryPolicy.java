@@ -0,0 +1,210 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.google.common.base.Throwables;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+import javax.ws.rs.ProcessingException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retry and hedging policy for the GET requests sent to gitlab.
+ *
+ * A request failing with a <code>5xx</code> status or a connection failure is sent again after an
+ * exponentially growing, jittered delay. A request which timed out waiting for a pooled connection is not,
+ * as sending it again would only wait on the same exhausted pool.
+ *
+ * When hedging is enabled and a request, blocking or async, has not been answered within the hedge delay,
+ * an identical request is sent and whichever successful response arrives first is used. The hedge delay
+ * follows the configured percentile of the observed latencies once enough requests have been sampled.
+ * A policy applies to every call of the endpoints it is set for, see
+ * {@link ConnectionService#setRetryPolicy(String, RetryPolicy)}.
+ *
+ * The policy keeps counters of the retries and hedges it has triggered.
+ *
+ * @author Rishikesh Darandale
+ */
+public class RetryPolicy {
+    private static final int LATENCY_SAMPLES = 256;
+    private static final int MINIMUM_SAMPLES = 20;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long hedgeDelay;
+    private final double hedgePercentile;
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+    private final AtomicInteger sampleCount = new AtomicInteger();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.hedgeDelay = builder.hedgeDelay;
+        this.hedgePercentile = builder.hedgePercentile;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isHedging() {
+        return hedgeDelay > 0;
+    }
+
+    /**
+     * @return number of requests sent again after a failure
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return number of hedged requests sent
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return number of hedged requests which answered before the original request
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return delay in milliseconds after which a hedged request is sent
+     */
+    public long getHedgeDelay() {
+        int count = Math.min(sampleCount.get(), LATENCY_SAMPLES);
+        if(hedgePercentile <= 0 || count < MINIMUM_SAMPLES) {
+            return hedgeDelay;
+        }
+        long[] samples = new long[count];
+        for(int i = 0; i < count; i++) {
+            samples[i] = latencies.get(i);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.min(count - 1, Math.ceil(hedgePercentile * count) - 1);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(samples[Math.max(0, index)]));
+    }
+
+    boolean isRetryable(int status) {
+        return status >= 500;
+    }
+
+    boolean isRetryable(ProcessingException e) {
+        for(Throwable cause : Throwables.getCausalChain(e)) {
+            if(cause instanceof ConnectionPoolTimeoutException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param attempt the attempt which has just failed, starting from 1
+     * @return delay in milliseconds before the next attempt
+     */
+    long getBackoff(int attempt) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    void recordLatency(long nanos) {
+        latencies.set(Math.floorMod(sampleCount.getAndIncrement(), LATENCY_SAMPLES), nanos);
+    }
+
+    void onRetry() {
+        retries.increment();
+    }
+
+    void onHedge() {
+        hedges.increment();
+    }
+
+    void onHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private long baseDelay = 100;
+        private long maxDelay = 5000;
+        private long hedgeDelay;
+        private double hedgePercentile;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxAttempts number of times a request is sent, including the first attempt
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelay delay in milliseconds before the first retry, doubled for every following retry
+         * @param maxDelay upper bound in milliseconds of the delay between two attempts
+         */
+        public Builder backoff(long baseDelay, long maxDelay) {
+            this.baseDelay = baseDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Enables hedging of the requests.
+         *
+         * @param hedgeDelay delay in milliseconds after which a hedged request is sent, used until enough
+         *                   latencies have been observed for the percentile
+         * @param hedgePercentile percentile of the observed latencies used as hedge delay, for example
+         *                        <code>0.95</code>, or zero to always use the fixed delay
+         */
+        public Builder hedge(long hedgeDelay, double hedgePercentile) {
+            this.hedgeDelay = hedgeDelay;
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if(maxAttempts < 1 || baseDelay < 0 || maxDelay < baseDelay || hedgeDelay < 0
+                    || hedgePercentile < 0 || hedgePercentile > 1) {
+                throw new IllegalArgumentException("Invalid retry policy");
+            }
+            return new RetryPolicy(this);
+        }
+    }
+}
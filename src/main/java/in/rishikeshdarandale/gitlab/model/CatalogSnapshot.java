@@ -0,0 +1,513 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * Binary snapshot of the groups and projects of a catalog, so that a process can start from the last crawl
+ * without deserializing JSON again.
+ *
+ * The snapshot is written column by column from a {@link GroupTable} and a {@link ProjectTable} sharing
+ * their {@link StringPool}. It is read back by memory mapping the file: nothing is copied when the snapshot
+ * is opened, rows are decoded when they are accessed and the pooled strings on their first access.
+ *
+ * Layout of the file, all numbers being big endian:
+ * <pre>
+ * header   magic, format version
+ * columns  one block per column, aligned on 8 bytes
+ * contents count, then tag, offset and length of every block
+ * footer   offset of the contents, magic
+ * </pre>
+ * Every block is tagged with its entity, kind and column number. String columns take two blocks, the UTF-8
+ * bytes of the strings followed by their end offsets, complemented for <code>null</code> strings. Blocks
+ * unknown to the reader are skipped and columns missing from the file read as <code>null</code>, so snapshots
+ * survive fields being added to or removed from the model. The format version only changes along with the
+ * layout above.
+ *
+ * @author Rishikesh Darandale
+ */
+public class CatalogSnapshot {
+    static final int MAGIC = 0x474c534e;
+    static final short VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int FOOTER_SIZE = 12;
+    private static final int ENTRY_SIZE = 20;
+    private static final int MAX_COLUMNS = 256;
+
+    private static final int STRINGS = 0;
+    private static final int GROUPS = 1;
+    private static final int PROJECTS = 2;
+
+    private static final int LONG = 1;
+    private static final int INT = 2;
+    private static final int BYTE = 3;
+    private static final int STRING_DATA = 4;
+    private static final int STRING_OFFSETS = 5;
+
+    private final MappedTable<Group> groups;
+    private final MappedTable<Project> projects;
+
+    private CatalogSnapshot(MappedTable<Group> groups, MappedTable<Project> projects) {
+        this.groups = groups;
+        this.projects = projects;
+    }
+
+    public EntityTable<Group> getGroups() {
+        return groups;
+    }
+
+    public EntityTable<Project> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Writes the snapshot of the tables, replacing the file once it is complete. The tables are locked
+     * while they are written.
+     *
+     * @throws IllegalArgumentException when the tables do not share their {@link StringPool}
+     */
+    public static void write(Path file, GroupTable groups, ProjectTable projects) throws IOException {
+        if(groups.getStrings() != projects.getStrings()) {
+            throw new IllegalArgumentException("Groups and projects should share their strings");
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (SnapshotOutput out = new SnapshotOutput(temp)) {
+                long groupsStamp = groups.lockRead();
+                try {
+                    long projectsStamp = projects.lockRead();
+                    try {
+                        out.writeTable(GROUPS, groups);
+                        out.writeTable(PROJECTS, projects);
+                        // strings go last, so that they include every code referred to by the rows
+                        out.writeStrings(groups.getStrings());
+                    } finally {
+                        projects.unlockRead(projectsStamp);
+                    }
+                } finally {
+                    groups.unlockRead(groupsStamp);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if(!moved) {
+                // an incomplete snapshot is never left behind
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Maps the snapshot file, which should not be modified while it is in use
+     *
+     * @throws IOException when the file is not a snapshot, is corrupt or has another format version
+     */
+    public static CatalogSnapshot open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is too large to be mapped");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = buffer.capacity();
+        if(size < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException(file + " is not a catalog snapshot");
+        }
+        short version = buffer.getShort(4);
+        if(version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " of " + file);
+        }
+        Map<Integer, ByteBuffer> blocks = new HashMap<>();
+        long offset = buffer.getLong(size - FOOTER_SIZE);
+        if(offset < HEADER_SIZE || offset > size - FOOTER_SIZE - 4) {
+            throw new IOException("Corrupt contents offset in " + file);
+        }
+        int count = buffer.getInt((int) offset);
+        if(count < 0 || offset + 4 + (long) count * ENTRY_SIZE > size - FOOTER_SIZE) {
+            throw new IOException("Corrupt contents in " + file);
+        }
+        for(int i = 0; i < count; i++) {
+            int entry = (int) offset + 4 + i * ENTRY_SIZE;
+            long start = buffer.getLong(entry + 4);
+            long length = buffer.getLong(entry + 12);
+            if(start < HEADER_SIZE || length < 0 || start + length > offset) {
+                throw new IOException("Corrupt block " + i + " in " + file);
+            }
+            blocks.put(buffer.getInt(entry), slice(buffer, (int) start, (int) length));
+        }
+        try {
+            MappedPool strings = new MappedPool(new MappedStrings(blocks.get(tag(STRINGS, STRING_DATA, 0)),
+                    blocks.get(tag(STRINGS, STRING_OFFSETS, 0))));
+            return new CatalogSnapshot(
+                    new MappedTable<>(GROUPS, blocks, strings, GroupColumns::read),
+                    new MappedTable<>(PROJECTS, blocks, strings, ProjectColumns::read));
+        } catch (IllegalStateException e) {
+            throw new IOException("Corrupt columns in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int tag(int entity, int kind, int column) {
+        return entity << 16 | kind << 8 | column;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer block = buffer.duplicate();
+        block.position(offset).limit(offset + length);
+        return block.slice();
+    }
+
+    /**
+     * Streams the blocks to the file and keeps track of their contents
+     */
+    private static class SnapshotOutput implements AutoCloseable {
+        private final DataOutputStream out;
+        private final List<long[]> contents = new ArrayList<>();
+        private long position;
+
+        private SnapshotOutput(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            position = HEADER_SIZE;
+        }
+
+        private void writeTable(int entity, ColumnTable<?> table) throws IOException {
+            int rows = table.size();
+            for(int column = 0; column < table.longs.length; column++) {
+                long start = startBlock();
+                long[] values = table.longs[column];
+                for(int row = 0; row < rows; row++) {
+                    out.writeLong(values[row]);
+                }
+                endBlock(tag(entity, LONG, column), start, rows * 8L);
+            }
+            for(int column = 0; column < table.ints.length; column++) {
+                long start = startBlock();
+                int[] values = table.ints[column];
+                for(int row = 0; row < rows; row++) {
+                    out.writeInt(values[row]);
+                }
+                endBlock(tag(entity, INT, column), start, rows * 4L);
+            }
+            for(int column = 0; column < table.bytes.length; column++) {
+                long start = startBlock();
+                out.write(table.bytes[column], 0, rows);
+                endBlock(tag(entity, BYTE, column), start, rows);
+            }
+            for(int column = 0; column < table.texts.length; column++) {
+                writeStrings(entity, column, table.texts[column], rows);
+            }
+        }
+
+        private void writeStrings(StringPool strings) throws IOException {
+            String[] values = strings.toArray();
+            writeStrings(STRINGS, 0, values, values.length);
+        }
+
+        /**
+         * Writes the bytes of the strings, then their end offsets, complemented for <code>null</code>
+         */
+        private void writeStrings(int entity, int column, String[] values, int count) throws IOException {
+            int[] ends = new int[count + 1];
+            long start = startBlock();
+            long length = 0;
+            for(int i = 0; i < count; i++) {
+                if(values[i] == null) {
+                    ends[i + 1] = ~(int) length;
+                    continue;
+                }
+                byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                length += bytes.length;
+                if(length > Integer.MAX_VALUE) {
+                    throw new IOException("Too many strings for a snapshot");
+                }
+                ends[i + 1] = (int) length;
+            }
+            endBlock(tag(entity, STRING_DATA, column), start, length);
+            start = startBlock();
+            for(int end : ends) {
+                out.writeInt(end);
+            }
+            endBlock(tag(entity, STRING_OFFSETS, column), start, ends.length * 4L);
+        }
+
+        private long startBlock() throws IOException {
+            while(position % 8 != 0) {
+                out.writeByte(0);
+                position++;
+            }
+            return position;
+        }
+
+        private void endBlock(int tag, long start, long length) {
+            contents.add(new long[] {tag, start, length});
+            position = start + length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                long offset = startBlock();
+                out.writeInt(contents.size());
+                for(long[] entry : contents) {
+                    out.writeInt((int) entry[0]);
+                    out.writeLong(entry[1]);
+                    out.writeLong(entry[2]);
+                }
+                out.writeLong(offset);
+                out.writeInt(MAGIC);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Strings of a string column, or of the pool
+     */
+    private static class MappedStrings {
+        private final ByteBuffer data;
+        private final IntBuffer ends;
+        private final int size;
+
+        private MappedStrings(ByteBuffer data, ByteBuffer ends) {
+            this.data = data == null ? ByteBuffer.allocate(0) : data;
+            this.ends = ends == null ? IntBuffer.allocate(1) : ends.asIntBuffer();
+            this.size = this.ends.capacity() - 1;
+            int last = size < 0 ? 0 : this.ends.get(size);
+            if(size < 0 || (last < 0 ? ~last : last) > this.data.capacity()) {
+                throw new IllegalStateException("strings overflow their data");
+            }
+        }
+
+        private String get(int index) {
+            int end = ends.get(index + 1);
+            if(end < 0) {
+                return null;
+            }
+            int start = ends.get(index);
+            if(start < 0) {
+                start = ~start;
+            }
+            byte[] bytes = new byte[end - start];
+            ByteBuffer string = data.duplicate();
+            string.position(start);
+            string.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Pooled strings of the snapshot, decoded on their first access
+     */
+    private static class MappedPool {
+        private final MappedStrings strings;
+        private final String[] decoded;
+
+        private MappedPool(MappedStrings strings) {
+            this.strings = strings;
+            this.decoded = new String[strings.size];
+        }
+
+        private String decode(int code) {
+            if(code == StringPool.NULL) {
+                return null;
+            }
+            // strings are immutable, so a racy cache at worst decodes a string twice
+            String value = decoded[code];
+            if(value == null) {
+                value = strings.get(code);
+                decoded[code] = value;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Table reading the columns of an entity straight from the mapped file
+     */
+    private static class MappedTable<T> implements EntityTable<T>, ColumnSource {
+        private final MappedPool strings;
+        private final MappedStrings[] texts = new MappedStrings[MAX_COLUMNS];
+        private final BiFunction<ColumnSource, Integer, T> views;
+        private final LongBuffer[] longs = new LongBuffer[MAX_COLUMNS];
+        private final IntBuffer[] ints = new IntBuffer[MAX_COLUMNS];
+        private final ByteBuffer[] bytes = new ByteBuffer[MAX_COLUMNS];
+        private final int size;
+        private volatile LongIndex index;
+
+        private MappedTable(int entity, Map<Integer, ByteBuffer> blocks, MappedPool strings,
+                            BiFunction<ColumnSource, Integer, T> views) {
+            this.strings = strings;
+            this.views = views;
+            for(Map.Entry<Integer, ByteBuffer> block : blocks.entrySet()) {
+                int tag = block.getKey();
+                if(tag >> 16 != entity) {
+                    continue;
+                }
+                int column = tag & 0xff;
+                switch (tag >> 8 & 0xff) {
+                    case LONG:
+                        longs[column] = block.getValue().asLongBuffer();
+                        break;
+                    case INT:
+                        ints[column] = block.getValue().asIntBuffer();
+                        break;
+                    case BYTE:
+                        bytes[column] = block.getValue();
+                        break;
+                    case STRING_DATA:
+                        texts[column] = new MappedStrings(block.getValue(),
+                                blocks.get(tag(entity, STRING_OFFSETS, column)));
+                        break;
+                    case STRING_OFFSETS:
+                        // read along with the data of the column
+                        break;
+                    default:
+                        // written by a later version
+                }
+            }
+            LongBuffer ids = longs[ColumnTable.ID];
+            this.size = ids == null ? 0 : ids.capacity();
+            for(int column = 0; column < MAX_COLUMNS; column++) {
+                // a column of another length would fail on access
+                if(longs[column] != null && longs[column].capacity() != size
+                        || ints[column] != null && ints[column].capacity() != size
+                        || bytes[column] != null && bytes[column].capacity() != size
+                        || texts[column] != null && texts[column].size != size) {
+                    throw new IllegalStateException("column " + column + " does not hold " + size + " rows");
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public T get(long id) {
+            int row = getIndex().get(id);
+            return row == LongIndex.MISSING ? null : views.apply(this, row);
+        }
+
+        @Override
+        public T getRow(int row) {
+            if(row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            return views.apply(this, row);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int row;
+
+                @Override
+                public boolean hasNext() {
+                    return row < size;
+                }
+
+                @Override
+                public T next() {
+                    if(row >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return views.apply(MappedTable.this, row++);
+                }
+            };
+        }
+
+        /**
+         * @return the index of the ids, built on the first lookup
+         */
+        private LongIndex getIndex() {
+            LongIndex index = this.index;
+            if(index == null) {
+                synchronized (this) {
+                    index = this.index;
+                    if(index == null) {
+                        index = new LongIndex();
+                        LongBuffer ids = longs[ColumnTable.ID];
+                        for(int row = 0; row < size; row++) {
+                            index.put(ids.get(row), row);
+                        }
+                        this.index = index;
+                    }
+                }
+            }
+            return index;
+        }
+
+        @Override
+        public long getLong(int column, int row) {
+            LongBuffer values = longs[column];
+            return values == null ? NULL_LONG : values.get(row);
+        }
+
+        @Override
+        public int getInt(int column, int row) {
+            IntBuffer values = ints[column];
+            return values == null ? NULL_INT : values.get(row);
+        }
+
+        @Override
+        public byte getByte(int column, int row) {
+            ByteBuffer values = bytes[column];
+            return values == null ? NULL_BYTE : values.get(row);
+        }
+
+        @Override
+        public String getString(int column, int row) {
+            MappedStrings values = texts[column];
+            return values == null ? null : values.get(row);
+        }
+
+        @Override
+        public String getPooledString(int column, int row) {
+            IntBuffer values = ints[column];
+            return values == null ? null : strings.decode(values.get(row));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import java.util.Date;
+
+/**
+ * Columns backing the entity tables, either held in memory or mapped from a snapshot.
+ *
+ * Columns of each kind are numbered by {@link ProjectColumns} and {@link GroupColumns}; missing primitive
+ * values are stored as the <code>NULL_</code> constants. Repeated strings are stored as {@link StringPool}
+ * codes in int columns, the other strings in string columns.
+ *
+ * @author Rishikesh Darandale
+ */
+interface ColumnSource {
+    long NULL_LONG = Long.MIN_VALUE;
+    int NULL_INT = Integer.MIN_VALUE;
+    byte NULL_BYTE = -1;
+
+    long getLong(int column, int row);
+
+    int getInt(int column, int row);
+
+    byte getByte(int column, int row);
+
+    String getString(int column, int row);
+
+    /**
+     * @return the string whose {@link StringPool} code is stored in the int column
+     */
+    String getPooledString(int column, int row);
+
+    default Long getNullableLong(int column, int row) {
+        long value = getLong(column, row);
+        return value == NULL_LONG ? null : value;
+    }
+
+    default Integer getNullableInt(int column, int row) {
+        int value = getInt(column, row);
+        return value == NULL_INT ? null : value;
+    }
+
+    default Boolean getBoolean(int column, int row) {
+        byte value = getByte(column, row);
+        return value == NULL_BYTE ? null : value == 1;
+    }
+
+    /**
+     * @return the path stored as a pooled namespace and a last segment
+     */
+    default String getJoinedPath(int namespaceColumn, int nameColumn, int row) {
+        String namespace = getPooledString(namespaceColumn, row);
+        String name = getString(nameColumn, row);
+        return namespace == null ? name : namespace + '/' + name;
+    }
+
+    default Date getDate(int column, int row) {
+        long value = getLong(column, row);
+        return value == NULL_LONG ? null : new Date(value);
+    }
+}
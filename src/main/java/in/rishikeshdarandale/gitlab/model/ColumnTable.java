@@ -0,0 +1,364 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Base of the columnar catalogs, entities are stored row by row in primitive and string columns, and
+ * handed out as detached copies read from their row.
+ *
+ * Only the repeated strings, such as namespaces, visibilities and branches, are dictionary encoded in the
+ * {@link StringPool}, the others are kept as they are. The references to the pool are released when a row
+ * is replaced or removed. Removing an entity moves the last row into its place.
+ *
+ * Writes are exclusive, reads are optimistic and only take the lock when a write got in their way.
+ *
+ * @author Rishikesh Darandale
+ */
+abstract class ColumnTable<T> implements EntityTable<T>, ColumnSource {
+    static final int ID = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    protected final StringPool strings;
+    private final int[] pooledColumns;
+    private final LongIndex index = new LongIndex();
+    private final StampedLock lock = new StampedLock();
+    long[][] longs;
+    int[][] ints;
+    byte[][] bytes;
+    String[][] texts;
+    private volatile int size;
+
+    /**
+     * @param strings dictionary of the repeated strings
+     * @param longColumns number of long columns, the first one holding the ids
+     * @param intColumns number of int columns, pooled string columns included
+     * @param byteColumns number of byte columns
+     * @param stringColumns number of string columns
+     * @param pooledColumns the int columns holding {@link StringPool} codes
+     */
+    ColumnTable(StringPool strings, int longColumns, int intColumns, int byteColumns, int stringColumns,
+                int... pooledColumns) {
+        this.strings = strings;
+        this.pooledColumns = pooledColumns;
+        this.longs = new long[longColumns][INITIAL_CAPACITY];
+        this.ints = new int[intColumns][INITIAL_CAPACITY];
+        this.bytes = new byte[byteColumns][INITIAL_CAPACITY];
+        this.texts = new String[stringColumns][INITIAL_CAPACITY];
+    }
+
+    public StringPool getStrings() {
+        return strings;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T get(long id) {
+        return optimistically(() -> {
+            int row = index.get(id);
+            return row == LongIndex.MISSING || row >= size ? null : readRow(row);
+        });
+    }
+
+    @Override
+    public T getRow(int row) {
+        T entity = row < 0 ? null : optimistically(() -> row < size ? readRow(row) : null);
+        if(entity == null) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return entity;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int row;
+            private T next = fetch(0);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if(next == null) {
+                    throw new NoSuchElementException();
+                }
+                T entity = next;
+                next = fetch(++row);
+                return entity;
+            }
+
+            private T fetch(int row) {
+                return ColumnTable.this.optimistically(() -> row < size ? readRow(row) : null);
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        // rows may be removed meanwhile, so the size is checked along with every row
+        for(T entity : this) {
+            action.accept(entity);
+        }
+    }
+
+    public void putAll(Iterable<? extends T> entities) {
+        for(T entity : entities) {
+            put(entity);
+        }
+    }
+
+    /**
+     * Adds the entity, or replaces the stored one with the same id. Entities without id are ignored.
+     */
+    public void put(T entity) {
+        Long id = getId(entity);
+        if(id == null) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int row = rowFor(id);
+            write(entity, row);
+            if(row == size) {
+                index.put(id, row);
+                size = row + 1;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entity with the id, releasing its strings
+     *
+     * @return <code>false</code> when the id is unknown
+     */
+    public boolean remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = index.get(id);
+            if(row == LongIndex.MISSING) {
+                return false;
+            }
+            for(int column : pooledColumns) {
+                strings.release(ints[column][row]);
+            }
+            int last = size - 1;
+            if(row != last) {
+                moveRow(last, row);
+                index.put(longs[ID][row], row);
+            }
+            index.remove(id);
+            for(String[] column : texts) {
+                column[last] = null;
+            }
+            size = last;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    protected abstract Long getId(T entity);
+
+    /**
+     * Writes all the columns of the entity but the id
+     */
+    protected abstract void write(T entity, int row);
+
+    /**
+     * @return a new entity holding the columns of the row
+     */
+    protected abstract T readRow(int row);
+
+    /**
+     * Holds the table against writes, for example while it is written to a snapshot
+     */
+    long lockRead() {
+        return lock.readLock();
+    }
+
+    void unlockRead(long stamp) {
+        lock.unlockRead(stamp);
+    }
+
+    @Override
+    public long getLong(int column, int row) {
+        return longs[column][row];
+    }
+
+    @Override
+    public int getInt(int column, int row) {
+        return ints[column][row];
+    }
+
+    @Override
+    public byte getByte(int column, int row) {
+        return bytes[column][row];
+    }
+
+    @Override
+    public String getString(int column, int row) {
+        return texts[column][row];
+    }
+
+    @Override
+    public String getPooledString(int column, int row) {
+        return strings.decode(ints[column][row]);
+    }
+
+    protected void setLong(int column, int row, Long value) {
+        longs[column][row] = value == null ? NULL_LONG : value;
+    }
+
+    protected void setDate(int column, int row, Date value) {
+        longs[column][row] = value == null ? NULL_LONG : value.getTime();
+    }
+
+    protected void setInt(int column, int row, Integer value) {
+        ints[column][row] = value == null ? NULL_INT : value;
+    }
+
+    protected void setBoolean(int column, int row, Boolean value) {
+        bytes[column][row] = value == null ? NULL_BYTE : (byte) (value ? 1 : 0);
+    }
+
+    protected void setString(int column, int row, String value) {
+        texts[column][row] = value;
+    }
+
+    /**
+     * Stores the code of a repeated string, releasing the string previously stored in the row
+     */
+    protected void setPooledString(int column, int row, String value) {
+        int previous = ints[column][row];
+        ints[column][row] = strings.encode(value);
+        strings.release(previous);
+    }
+
+    /**
+     * Stores a path as its pooled namespace and its last segment, which is shared with <code>name</code>
+     * when they are equal.
+     *
+     * @see ColumnSource#getJoinedPath(int, int, int)
+     */
+    protected void setPath(int namespaceColumn, int nameColumn, int row, String path, String name) {
+        int slash = path == null ? -1 : path.lastIndexOf('/');
+        String last = slash < 0 ? path : path.substring(slash + 1);
+        setPooledString(namespaceColumn, row, slash < 0 ? null : path.substring(0, slash));
+        setString(nameColumn, row, last != null && last.equals(name) ? name : last);
+    }
+
+    /**
+     * Reads optimistically, reading again under the lock when a write happened meanwhile
+     */
+    private <R> R optimistically(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0) {
+            try {
+                R result = reader.get();
+                if(lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // the columns may have been inconsistent because of a concurrent write
+                if(lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the row of the id, appending a new row when the id is unknown
+     */
+    private int rowFor(long id) {
+        int row = index.get(id);
+        if(row != LongIndex.MISSING) {
+            return row;
+        }
+        row = size;
+        if(row == longs[ID].length) {
+            grow(row * 2);
+        }
+        longs[ID][row] = id;
+        for(int column : pooledColumns) {
+            ints[column][row] = StringPool.NULL;
+        }
+        return row;
+    }
+
+    private void moveRow(int from, int to) {
+        for(long[] column : longs) {
+            column[to] = column[from];
+        }
+        for(int[] column : ints) {
+            column[to] = column[from];
+        }
+        for(byte[] column : bytes) {
+            column[to] = column[from];
+        }
+        for(String[] column : texts) {
+            column[to] = column[from];
+        }
+    }
+
+    private void grow(int capacity) {
+        long[][] longs = this.longs.clone();
+        for(int column = 0; column < longs.length; column++) {
+            longs[column] = Arrays.copyOf(longs[column], capacity);
+        }
+        int[][] ints = this.ints.clone();
+        for(int column = 0; column < ints.length; column++) {
+            ints[column] = Arrays.copyOf(ints[column], capacity);
+        }
+        byte[][] bytes = this.bytes.clone();
+        for(int column = 0; column < bytes.length; column++) {
+            bytes[column] = Arrays.copyOf(bytes[column], capacity);
+        }
+        String[][] texts = this.texts.clone();
+        for(int column = 0; column < texts.length; column++) {
+            texts[column] = Arrays.copyOf(texts[column], capacity);
+        }
+        this.longs = longs;
+        this.ints = ints;
+        this.bytes = bytes;
+        this.texts = texts;
+    }
+}
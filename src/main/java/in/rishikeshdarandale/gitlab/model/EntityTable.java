@@ -0,0 +1,52 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Read only table of entities addressed by their id
+ *
+ * @author Rishikesh Darandale
+ */
+public interface EntityTable<T> extends Iterable<T> {
+
+    /**
+     * @return number of entities
+     */
+    int size();
+
+    /**
+     * @return the entity with the id, or <code>null</code>
+     */
+    T get(long id);
+
+    /**
+     * @return the entity stored in the row, rows being numbered from zero up to the size
+     */
+    T getRow(int row);
+
+    @Override
+    default void forEach(Consumer<? super T> action) {
+        int rows = size();
+        for(int row = 0; row < rows; row++) {
+            action.accept(getRow(row));
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package in.rishikeshdarandale.gitlab.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * This class will hold information related to Group in gitlab.
@@ -32,6 +33,13 @@ public class Group {
     private String name;
     private String path;
     private String description;
+    @JsonProperty("full_path")
+    private String fullPath;
+    @JsonProperty("parent_id")
+    private Long parentId;
+    private String visibility;
+    @JsonProperty("web_url")
+    private String webUrl;
 
     public Long getId() {
         return id;
@@ -65,6 +73,38 @@ public class Group {
         this.description = description;
     }
 
+    public String getFullPath() {
+        return fullPath;
+    }
+
+    public void setFullPath(String fullPath) {
+        this.fullPath = fullPath;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getVisibility() {
+        return visibility;
+    }
+
+    public void setVisibility(String visibility) {
+        this.visibility = visibility;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public void setWebUrl(String webUrl) {
+        this.webUrl = webUrl;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -93,6 +133,10 @@ public class Group {
                 ", name='" + name + '\'' +
                 ", path='" + path + '\'' +
                 ", description='" + description + '\'' +
+                ", fullPath='" + fullPath + '\'' +
+                ", parentId=" + parentId +
+                ", visibility='" + visibility + '\'' +
+                ", webUrl='" + webUrl + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,62 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+/**
+ * Column numbers of the groups in a {@link ColumnSource}, and the reading of a group from its row.
+ *
+ * The column numbers are stored in the snapshots, so new fields take new numbers and the numbers of
+ * removed fields are not reused.
+ *
+ * @author Rishikesh Darandale
+ */
+final class GroupColumns {
+    // long columns
+    static final int ID = ColumnTable.ID;
+    static final int PARENT_ID = 1;
+    static final int LONG_COLUMNS = 2;
+    // int columns, holding pooled strings
+    static final int NAMESPACE = 0;
+    static final int VISIBILITY = 1;
+    static final int INT_COLUMNS = 2;
+    static final int[] POOLED_COLUMNS = {NAMESPACE, VISIBILITY};
+    // string columns
+    static final int NAME = 0;
+    static final int PATH = 1;
+    static final int PATH_IN_NAMESPACE = 2;
+    static final int DESCRIPTION = 3;
+    static final int WEB_URL = 4;
+    static final int STRING_COLUMNS = 5;
+
+    private GroupColumns() {
+    }
+
+    static Group read(ColumnSource source, int row) {
+        Group group = new Group();
+        group.setId(source.getNullableLong(ID, row));
+        group.setName(source.getString(NAME, row));
+        group.setPath(source.getString(PATH, row));
+        group.setDescription(source.getString(DESCRIPTION, row));
+        group.setFullPath(source.getJoinedPath(NAMESPACE, PATH_IN_NAMESPACE, row));
+        group.setParentId(source.getNullableLong(PARENT_ID, row));
+        group.setVisibility(source.getPooledString(VISIBILITY, row));
+        group.setWebUrl(source.getString(WEB_URL, row));
+        return group;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+/**
+ * Compact, columnar storage of groups.
+ *
+ * Ids are kept as primitives. The namespaces and visibilities are dictionary encoded in a
+ * {@link StringPool}, which can be shared with a {@link ProjectTable} so that they are stored once; the
+ * other strings are unique to their group and kept as they are. The groups returned are copies of their
+ * row, changing them does not change the table.
+ *
+ * @author Rishikesh Darandale
+ */
+public class GroupTable extends ColumnTable<Group> {
+
+    public GroupTable() {
+        this(new StringPool());
+    }
+
+    public GroupTable(StringPool strings) {
+        super(strings, GroupColumns.LONG_COLUMNS, GroupColumns.INT_COLUMNS, 0, GroupColumns.STRING_COLUMNS,
+                GroupColumns.POOLED_COLUMNS);
+    }
+
+    @Override
+    protected Long getId(Group group) {
+        return group.getId();
+    }
+
+    @Override
+    protected void write(Group group, int row) {
+        setLong(GroupColumns.PARENT_ID, row, group.getParentId());
+        setString(GroupColumns.NAME, row, group.getName());
+        setString(GroupColumns.PATH, row, group.getPath());
+        setString(GroupColumns.DESCRIPTION, row, group.getDescription());
+        setPath(GroupColumns.NAMESPACE, GroupColumns.PATH_IN_NAMESPACE, row, group.getFullPath(), group.getPath());
+        setPooledString(GroupColumns.VISIBILITY, row, group.getVisibility());
+        setString(GroupColumns.WEB_URL, row, group.getWebUrl());
+    }
+
+    @Override
+    protected Group readRow(int row) {
+        return GroupColumns.read(this, row);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+/**
+ * Open addressing map from a primitive id to the row holding it.
+ *
+ * Keys and rows are interleaved in a single array, so a reader always sees a consistent table even while
+ * it is being resized. A reader racing with a removal may miss a key though, so writes should be
+ * serialized by the caller and concurrent reads validated.
+ *
+ * @author Rishikesh Darandale
+ */
+class LongIndex {
+    static final int MISSING = -1;
+
+    // key at 2 * slot, row + 1 at 2 * slot + 1, zero marking a free slot
+    private volatile long[] table = new long[32];
+    private int size;
+
+    int get(long key) {
+        long[] table = this.table;
+        int mask = table.length / 2 - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long row = table[2 * slot + 1];
+            if(row == 0) {
+                return MISSING;
+            }
+            if(table[2 * slot] == key) {
+                return (int) row - 1;
+            }
+        }
+    }
+
+    void put(long key, int row) {
+        long[] table = this.table;
+        if((size + 1) * 4 > table.length / 2 * 3) {
+            table = resize(table);
+        }
+        if(insert(table, key, row)) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes the key, shifting back the rest of its cluster so that no lookup stops at the freed slot
+     */
+    void remove(long key) {
+        long[] table = this.table;
+        int mask = table.length / 2 - 1;
+        int hole = hash(key) & mask;
+        while(table[2 * hole] != key || table[2 * hole + 1] == 0) {
+            if(table[2 * hole + 1] == 0) {
+                return;
+            }
+            hole = (hole + 1) & mask;
+        }
+        for(int slot = (hole + 1) & mask; table[2 * slot + 1] != 0; slot = (slot + 1) & mask) {
+            int home = hash(table[2 * slot]) & mask;
+            // the entry moves when the hole lies between its home slot and its current one
+            if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[2 * hole] = table[2 * slot];
+                table[2 * hole + 1] = table[2 * slot + 1];
+                hole = slot;
+            }
+        }
+        table[2 * hole] = 0;
+        table[2 * hole + 1] = 0;
+        size--;
+    }
+
+    private long[] resize(long[] table) {
+        long[] resized = new long[table.length * 2];
+        for(int slot = 0; slot < table.length / 2; slot++) {
+            if(table[2 * slot + 1] != 0) {
+                insert(resized, table[2 * slot], (int) table[2 * slot + 1] - 1);
+            }
+        }
+        this.table = resized;
+        return resized;
+    }
+
+    private static boolean insert(long[] table, long key, int row) {
+        int mask = table.length / 2 - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if(table[2 * slot + 1] == 0) {
+                table[2 * slot] = key;
+                table[2 * slot + 1] = row + 1L;
+                return true;
+            }
+            if(table[2 * slot] == key) {
+                table[2 * slot + 1] = row + 1L;
+                return false;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
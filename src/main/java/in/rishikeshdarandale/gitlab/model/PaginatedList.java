@@ -31,10 +31,21 @@ public class PaginatedList<T> {
     private Integer currentPage;
     private Integer previousPage;
     private Integer nextPage;
+    private String nextLink;
 
     public PaginatedList(List<T> t, Integer totalItems,
                          Integer totalPages, Integer totalItemsPerPage,
                          Integer currentPage, Integer previousPage, Integer nextPage) {
+        this(t, totalItems, totalPages, totalItemsPerPage, currentPage, previousPage, nextPage, null);
+    }
+
+    /**
+     * @param nextLink url of the next page from the <code>Link</code> header, the only way to the next page
+     *                 with keyset pagination
+     */
+    public PaginatedList(List<T> t, Integer totalItems,
+                         Integer totalPages, Integer totalItemsPerPage,
+                         Integer currentPage, Integer previousPage, Integer nextPage, String nextLink) {
         this.tList = t;
         this.totalItems = totalItems;
         this.totalPages = totalPages;
@@ -42,6 +53,7 @@ public class PaginatedList<T> {
         this.currentPage = currentPage;
         this.previousPage = previousPage;
         this.nextPage = nextPage;
+        this.nextLink = nextLink;
     }
 
     public List<T> gettList() {
@@ -99,4 +111,19 @@ public class PaginatedList<T> {
     public void setNextPage(Integer nextPage) {
         this.nextPage = nextPage;
     }
+
+    public String getNextLink() {
+        return nextLink;
+    }
+
+    public void setNextLink(String nextLink) {
+        this.nextLink = nextLink;
+    }
+
+    /**
+     * @return whether there is a page after this one, with either offset or keyset pagination
+     */
+    public boolean hasNextPage() {
+        return (nextPage != null && nextPage > 0) || nextLink != null;
+    }
 }
@@ -16,16 +16,177 @@
  *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
  *  DEALINGS IN THE SOFTWARE.
  */
-
 package in.rishikeshdarandale.gitlab.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Date;
 
 /**
- * This class will hold information related to Group in gitlab.
+ * This class will hold information related to Project in gitlab.
  *
  * @author Rishikesh Darandale
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Project {
+    private Long id;
+    private String name;
+    private String path;
+    @JsonProperty("path_with_namespace")
+    private String pathWithNamespace;
+    private String description;
+    @JsonProperty("default_branch")
+    private String defaultBranch;
+    private String visibility;
+    private Boolean archived;
+    @JsonProperty("web_url")
+    private String webUrl;
+    @JsonProperty("star_count")
+    private Integer starCount;
+    @JsonProperty("forks_count")
+    private Integer forksCount;
+    @JsonProperty("created_at")
+    private Date createdAt;
+    @JsonProperty("last_activity_at")
+    private Date lastActivityAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getPathWithNamespace() {
+        return pathWithNamespace;
+    }
+
+    public void setPathWithNamespace(String pathWithNamespace) {
+        this.pathWithNamespace = pathWithNamespace;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getDefaultBranch() {
+        return defaultBranch;
+    }
+
+    public void setDefaultBranch(String defaultBranch) {
+        this.defaultBranch = defaultBranch;
+    }
+
+    public String getVisibility() {
+        return visibility;
+    }
+
+    public void setVisibility(String visibility) {
+        this.visibility = visibility;
+    }
+
+    public Boolean getArchived() {
+        return archived;
+    }
+
+    public void setArchived(Boolean archived) {
+        this.archived = archived;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public void setWebUrl(String webUrl) {
+        this.webUrl = webUrl;
+    }
+
+    public Integer getStarCount() {
+        return starCount;
+    }
+
+    public void setStarCount(Integer starCount) {
+        this.starCount = starCount;
+    }
+
+    public Integer getForksCount() {
+        return forksCount;
+    }
+
+    public void setForksCount(Integer forksCount) {
+        this.forksCount = forksCount;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(Date lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Project)) return false;
+
+        Project project = (Project) o;
+
+        if (getId() != null ? !getId().equals(project.getId()) : project.getId() != null) return false;
+        if (getName() != null ? !getName().equals(project.getName()) : project.getName() != null) return false;
+        return getPathWithNamespace() != null ? getPathWithNamespace().equals(project.getPathWithNamespace())
+                : project.getPathWithNamespace() == null;
+
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getId() != null ? getId().hashCode() : 0;
+        result = 31 * result + (getName() != null ? getName().hashCode() : 0);
+        result = 31 * result + (getPathWithNamespace() != null ? getPathWithNamespace().hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Project{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", pathWithNamespace='" + pathWithNamespace + '\'' +
+                ", defaultBranch='" + defaultBranch + '\'' +
+                ", visibility='" + visibility + '\'' +
+                ", archived=" + archived +
+                ", lastActivityAt=" + lastActivityAt +
+                '}';
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+/**
+ * Column numbers of the projects in a {@link ColumnSource}, and the reading of a project from its row.
+ *
+ * The column numbers are stored in the snapshots, so new fields take new numbers and the numbers of
+ * removed fields are not reused.
+ *
+ * @author Rishikesh Darandale
+ */
+final class ProjectColumns {
+    // long columns
+    static final int ID = ColumnTable.ID;
+    static final int CREATED_AT = 1;
+    static final int LAST_ACTIVITY_AT = 2;
+    static final int LONG_COLUMNS = 3;
+    // int columns, the last three holding pooled strings
+    static final int STAR_COUNT = 0;
+    static final int FORKS_COUNT = 1;
+    static final int NAMESPACE = 2;
+    static final int DEFAULT_BRANCH = 3;
+    static final int VISIBILITY = 4;
+    static final int INT_COLUMNS = 5;
+    static final int[] POOLED_COLUMNS = {NAMESPACE, DEFAULT_BRANCH, VISIBILITY};
+    // byte columns
+    static final int ARCHIVED = 0;
+    static final int BYTE_COLUMNS = 1;
+    // string columns
+    static final int NAME = 0;
+    static final int PATH = 1;
+    static final int PATH_IN_NAMESPACE = 2;
+    static final int DESCRIPTION = 3;
+    static final int WEB_URL = 4;
+    static final int STRING_COLUMNS = 5;
+
+    private ProjectColumns() {
+    }
+
+    static Project read(ColumnSource source, int row) {
+        Project project = new Project();
+        project.setId(source.getNullableLong(ID, row));
+        project.setName(source.getString(NAME, row));
+        project.setPath(source.getString(PATH, row));
+        project.setPathWithNamespace(source.getJoinedPath(NAMESPACE, PATH_IN_NAMESPACE, row));
+        project.setDescription(source.getString(DESCRIPTION, row));
+        project.setDefaultBranch(source.getPooledString(DEFAULT_BRANCH, row));
+        project.setVisibility(source.getPooledString(VISIBILITY, row));
+        project.setArchived(source.getBoolean(ARCHIVED, row));
+        project.setWebUrl(source.getString(WEB_URL, row));
+        project.setStarCount(source.getNullableInt(STAR_COUNT, row));
+        project.setForksCount(source.getNullableInt(FORKS_COUNT, row));
+        project.setCreatedAt(source.getDate(CREATED_AT, row));
+        project.setLastActivityAt(source.getDate(LAST_ACTIVITY_AT, row));
+        return project;
+    }
+}
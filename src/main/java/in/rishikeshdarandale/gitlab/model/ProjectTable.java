@@ -0,0 +1,68 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+/**
+ * Compact, columnar storage of projects.
+ *
+ * Ids, counters and dates are kept as primitives. Only the namespaces, default branches and visibilities,
+ * which repeat over thousands of projects, are dictionary encoded in a {@link StringPool}; the names,
+ * paths, descriptions and urls of the projects are unique and kept as they are. The projects returned are
+ * copies of their row, changing them does not change the table.
+ *
+ * @author Rishikesh Darandale
+ */
+public class ProjectTable extends ColumnTable<Project> {
+
+    public ProjectTable() {
+        this(new StringPool());
+    }
+
+    public ProjectTable(StringPool strings) {
+        super(strings, ProjectColumns.LONG_COLUMNS, ProjectColumns.INT_COLUMNS, ProjectColumns.BYTE_COLUMNS,
+                ProjectColumns.STRING_COLUMNS, ProjectColumns.POOLED_COLUMNS);
+    }
+
+    @Override
+    protected Long getId(Project project) {
+        return project.getId();
+    }
+
+    @Override
+    protected void write(Project project, int row) {
+        setDate(ProjectColumns.CREATED_AT, row, project.getCreatedAt());
+        setDate(ProjectColumns.LAST_ACTIVITY_AT, row, project.getLastActivityAt());
+        setString(ProjectColumns.NAME, row, project.getName());
+        setString(ProjectColumns.PATH, row, project.getPath());
+        setPath(ProjectColumns.NAMESPACE, ProjectColumns.PATH_IN_NAMESPACE, row, project.getPathWithNamespace(),
+                project.getPath());
+        setString(ProjectColumns.DESCRIPTION, row, project.getDescription());
+        setPooledString(ProjectColumns.DEFAULT_BRANCH, row, project.getDefaultBranch());
+        setPooledString(ProjectColumns.VISIBILITY, row, project.getVisibility());
+        setString(ProjectColumns.WEB_URL, row, project.getWebUrl());
+        setInt(ProjectColumns.STAR_COUNT, row, project.getStarCount());
+        setInt(ProjectColumns.FORKS_COUNT, row, project.getForksCount());
+        setBoolean(ProjectColumns.ARCHIVED, row, project.getArchived());
+    }
+
+    @Override
+    protected Project readRow(int row) {
+        return ProjectColumns.read(this, row);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of the repeated strings of a catalog, such as namespaces, visibilities and branches. Every
+ * distinct string is stored once and referred to by its code.
+ *
+ * Strings are reference counted: every {@link #encode(String)} should be paired with a
+ * {@link #release(int)} once the code is no longer stored, after which the code of an unused string is
+ * reused. <code>-1</code> stands for <code>null</code>. Writes are synchronized, decoding is lock free.
+ *
+ * @author Rishikesh Darandale
+ */
+public class StringPool {
+    public static final int NULL = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] strings = new String[64];
+    private int[] references = new int[64];
+    private int[] freeCodes = new int[16];
+    private int freeCount;
+    private volatile int length;
+
+    /**
+     * @return the code of the string, which holds one more reference to it
+     */
+    public synchronized int encode(String value) {
+        if(value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if(code != null) {
+            references[code]++;
+            return code;
+        }
+        int newCode;
+        if(freeCount > 0) {
+            newCode = freeCodes[--freeCount];
+        } else {
+            newCode = length;
+            if(newCode == strings.length) {
+                strings = Arrays.copyOf(strings, newCode * 2);
+                references = Arrays.copyOf(references, newCode * 2);
+            }
+        }
+        strings[newCode] = value;
+        references[newCode] = 1;
+        codes.put(value, newCode);
+        // the volatile write publishes the string to the readers
+        length = Math.max(length, newCode + 1);
+        return newCode;
+    }
+
+    /**
+     * Drops one reference to the string of the code, the string is forgotten along with its last reference
+     */
+    public synchronized void release(int code) {
+        if(code == NULL) {
+            return;
+        }
+        if(code < 0 || code >= length || references[code] == 0) {
+            throw new IllegalArgumentException("Unknown string " + code);
+        }
+        if(--references[code] == 0) {
+            codes.remove(strings[code]);
+            strings[code] = null;
+            if(freeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+            }
+            freeCodes[freeCount++] = code;
+        }
+    }
+
+    public String decode(int code) {
+        if(code == NULL) {
+            return null;
+        }
+        if(code < 0 || code >= length) {
+            throw new IndexOutOfBoundsException("Unknown string " + code);
+        }
+        return strings[code];
+    }
+
+    /**
+     * @return number of distinct strings in use
+     */
+    public synchronized int size() {
+        return codes.size();
+    }
+
+    /**
+     * @return the strings indexed by their code, <code>null</code> for the unused codes
+     */
+    synchronized String[] toArray() {
+        return Arrays.copyOf(strings, length);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.model.Group;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the project catalog and the group index up to date with the events of a {@link HookReceiver}.
+ *
+ * Changed projects are fetched again and deleted ones dropped, the projects of their namespaces are fetched
+ * again when a project is created, moved or deleted. Created and renamed groups are fetched again, deleted
+ * ones dropped from the index along with their subgroups, and the members of a group are fetched again whenever
+ * they change. The other events are ignored.
+ *
+ * The cached responses of the projects and groups an event is about are dropped before they are fetched again.
+ * An event failing on anything but its authentication is requeued after a delay, up to a maximum number of
+ * attempts, so that a temporary failure of gitlab does not lose it.
+ *
+ * @author Rishikesh Darandale
+ */
+public class CatalogUpdater implements HookListener {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_DELAY = 5000;
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogUpdater.class);
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gitlab-catalog-updater").build());
+
+    private final GroupService groupService;
+    private final ProjectService projectService;
+    private final int maxAttempts;
+    private final long retryDelay;
+
+    /**
+     * @param groupService the service of the group index, may be <code>null</code>
+     * @param projectService the service of the project catalog, may be <code>null</code>
+     */
+    public CatalogUpdater(GroupService groupService, ProjectService projectService) {
+        this(groupService, projectService, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * @param groupService the service of the group index, may be <code>null</code>
+     * @param projectService the service of the project catalog, may be <code>null</code>
+     * @param maxAttempts maximum number of times an event is applied
+     * @param retryDelay delay in milliseconds before a failed event is applied again
+     */
+    public CatalogUpdater(GroupService groupService, ProjectService projectService, int maxAttempts,
+                          long retryDelay) {
+        if(maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts should be at least 1");
+        }
+        this.groupService = groupService;
+        this.projectService = projectService;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public void onEvent(HookEvent event) {
+        onEvent(event, 1);
+    }
+
+    private void onEvent(HookEvent event, int attempt) {
+        try {
+            update(event);
+        } catch (AuthenticationException e) {
+            LOG.warn("Unable to update the catalogs on {}", event, e);
+        } catch (RuntimeException e) {
+            if(attempt >= maxAttempts) {
+                LOG.warn("Unable to update the catalogs on {} after {} attempts", event, attempt, e);
+            } else {
+                LOG.info("Unable to update the catalogs on {}, retrying in {} ms", event, retryDelay, e);
+                RETRY_SCHEDULER.schedule(() -> onEvent(event, attempt + 1), retryDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void update(HookEvent event) throws AuthenticationException {
+        switch (event.getName()) {
+            case "project_create":
+            case "project_update":
+            case "project_rename":
+            case "project_transfer":
+            case "project_destroy":
+                onProjectEvent(event);
+                break;
+            case "group_create":
+            case "group_rename":
+            case "subgroup_create":
+                if(groupService != null && event.getGroupId() != null) {
+                    groupService.invalidate(event.getGroupId());
+                    groupService.refreshGroup(event.getGroupId());
+                }
+                break;
+            case "group_destroy":
+            case "subgroup_destroy":
+                if(groupService != null && event.getGroupId() != null) {
+                    groupService.invalidate(event.getGroupId());
+                    groupService.getIndex().remove(event.getGroupId());
+                }
+                break;
+            case "user_add_to_group":
+            case "user_remove_from_group":
+            case "user_update_for_group":
+                if(groupService != null && event.getGroupId() != null) {
+                    groupService.invalidate(event.getGroupId());
+                    groupService.refreshMembers(event.getGroupId());
+                }
+                break;
+            default:
+                LOG.debug("Ignoring {}", event);
+        }
+    }
+
+    private void onProjectEvent(HookEvent event) throws AuthenticationException {
+        if(projectService != null && event.getProjectId() != null) {
+            projectService.invalidate(event.getProjectId());
+            if("project_destroy".equals(event.getName())) {
+                projectService.getCatalog().remove(event.getProjectId());
+            } else {
+                projectService.refresh(event.getProjectId());
+            }
+        }
+        if(groupService != null && !"project_update".equals(event.getName())) {
+            refreshNamespace(event.getPath());
+            refreshNamespace(event.getOldPath());
+        }
+    }
+
+    private void refreshNamespace(String pathWithNamespace) throws AuthenticationException {
+        int slash = pathWithNamespace == null ? -1 : pathWithNamespace.lastIndexOf('/');
+        if(slash > 0) {
+            Group group = groupService.getIndex().getByFullPath(pathWithNamespace.substring(0, slash));
+            if(group != null) {
+                groupService.invalidate(group.getId());
+                groupService.refreshProjects(group.getId());
+            }
+        }
+    }
+}
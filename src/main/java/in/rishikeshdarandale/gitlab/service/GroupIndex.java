@@ -0,0 +1,226 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import in.rishikeshdarandale.gitlab.model.Group;
+import in.rishikeshdarandale.gitlab.model.Member;
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory index of a group hierarchy, along with the projects and members of every group.
+ *
+ * Groups are looked up by id or by full path (case insensitive, as in gitlab). The index is safe for
+ * concurrent use, so it can be read while it is being built or updated.
+ *
+ * @author Rishikesh Darandale
+ */
+public class GroupIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupIndex.class);
+
+    private final Map<Long, Group> byId = new ConcurrentHashMap<>();
+    private final Map<String, Group> byFullPath = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> children = new ConcurrentHashMap<>();
+    private final Map<Long, List<Project>> projects = new ConcurrentHashMap<>();
+    private final Map<Long, List<Member>> members = new ConcurrentHashMap<>();
+
+    public Group getById(long id) {
+        return byId.get(id);
+    }
+
+    public Group getByFullPath(String fullPath) {
+        return fullPath == null ? null : byFullPath.get(fullPath.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the direct subgroups of the group
+     */
+    public List<Group> getChildren(long id) {
+        Set<Long> childIds = children.get(id);
+        if(childIds == null) {
+            return Collections.emptyList();
+        }
+        List<Group> groups = new ArrayList<>(childIds.size());
+        for(Long childId : childIds) {
+            Group group = byId.get(childId);
+            if(group != null) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    public List<Project> getProjects(long id) {
+        return projects.getOrDefault(id, Collections.<Project>emptyList());
+    }
+
+    public List<Member> getMembers(long id) {
+        return members.getOrDefault(id, Collections.<Member>emptyList());
+    }
+
+    public Collection<Group> getGroups() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Drops the group along with its subgroups, for example once it has been deleted or moved
+     */
+    public void remove(long id) {
+        Group group = byId.remove(id);
+        if(group == null) {
+            return;
+        }
+        byFullPath.remove(group.getFullPath().toLowerCase(Locale.ROOT), group);
+        projects.remove(id);
+        members.remove(id);
+        if(group.getParentId() != null) {
+            Set<Long> siblings = children.get(group.getParentId());
+            if(siblings != null) {
+                siblings.remove(id);
+            }
+        }
+        Set<Long> childIds = children.remove(id);
+        if(childIds != null) {
+            for(Long childId : childIds) {
+                remove(childId);
+            }
+        }
+    }
+
+    /**
+     * Adds a copy of the group, with its full path derived from its parent when gitlab did not return it. Groups
+     * without an id, or with neither a path nor a full path, are skipped.
+     *
+     * @return <code>false</code> when the group was already indexed or skipped
+     */
+    boolean add(Group group) {
+        if(!isIndexable(group)) {
+            return false;
+        }
+        Group indexed = withFullPath(group, fullPathOf(group));
+        if(byId.putIfAbsent(indexed.getId(), indexed) != null) {
+            return false;
+        }
+        byFullPath.put(indexed.getFullPath().toLowerCase(Locale.ROOT), indexed);
+        if(indexed.getParentId() != null) {
+            children.computeIfAbsent(indexed.getParentId(), parentId -> ConcurrentHashMap.<Long>newKeySet())
+                    .add(indexed.getId());
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the indexed group with a copy of the one fetched again, moving it under its new parent and
+     * re-keying the full paths of its subgroups when it was renamed or transferred. A group not indexed yet is
+     * added. The groups already returned by the index are left untouched.
+     *
+     * @return <code>true</code> when the group was not indexed yet
+     */
+    boolean update(Group group) {
+        if(!isIndexable(group)) {
+            return false;
+        }
+        Group previous = byId.get(group.getId());
+        if(previous == null) {
+            return add(group);
+        }
+        if(!Objects.equals(previous.getParentId(), group.getParentId())) {
+            if(previous.getParentId() != null) {
+                Set<Long> siblings = children.get(previous.getParentId());
+                if(siblings != null) {
+                    siblings.remove(group.getId());
+                }
+            }
+            if(group.getParentId() != null) {
+                children.computeIfAbsent(group.getParentId(), parentId -> ConcurrentHashMap.<Long>newKeySet())
+                        .add(group.getId());
+            }
+        }
+        Group indexed = withFullPath(group, fullPathOf(group));
+        byId.put(indexed.getId(), indexed);
+        byFullPath.remove(previous.getFullPath().toLowerCase(Locale.ROOT), previous);
+        byFullPath.put(indexed.getFullPath().toLowerCase(Locale.ROOT), indexed);
+        rekeyChildren(indexed);
+        return false;
+    }
+
+    private void rekeyChildren(Group parent) {
+        for(Group child : getChildren(parent.getId())) {
+            String path = child.getPath() != null ? child.getPath()
+                    : child.getFullPath().substring(child.getFullPath().lastIndexOf('/') + 1);
+            Group rekeyed = withFullPath(child, parent.getFullPath() + '/' + path);
+            byId.replace(child.getId(), child, rekeyed);
+            byFullPath.remove(child.getFullPath().toLowerCase(Locale.ROOT), child);
+            byFullPath.put(rekeyed.getFullPath().toLowerCase(Locale.ROOT), rekeyed);
+            rekeyChildren(rekeyed);
+        }
+    }
+
+    private boolean isIndexable(Group group) {
+        if(group.getId() == null || group.getPath() == null && group.getFullPath() == null) {
+            LOG.warn("Skipping group without an id or a path: {}", group);
+            return false;
+        }
+        return true;
+    }
+
+    private String fullPathOf(Group group) {
+        if(group.getFullPath() != null) {
+            return group.getFullPath();
+        }
+        Group parent = group.getParentId() == null ? null : byId.get(group.getParentId());
+        return parent == null ? group.getPath() : parent.getFullPath() + '/' + group.getPath();
+    }
+
+    private static Group withFullPath(Group group, String fullPath) {
+        Group copy = new Group();
+        copy.setId(group.getId());
+        copy.setName(group.getName());
+        copy.setPath(group.getPath());
+        copy.setDescription(group.getDescription());
+        copy.setFullPath(fullPath);
+        copy.setParentId(group.getParentId());
+        copy.setVisibility(group.getVisibility());
+        copy.setWebUrl(group.getWebUrl());
+        return copy;
+    }
+
+    void setProjects(long id, List<Project> groupProjects) {
+        projects.put(id, Collections.unmodifiableList(groupProjects));
+    }
+
+    void setMembers(long id, List<Member> groupMembers) {
+        members.put(id, Collections.unmodifiableList(groupMembers));
+    }
+}
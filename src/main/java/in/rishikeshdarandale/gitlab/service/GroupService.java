@@ -18,8 +18,292 @@
  */
 package in.rishikeshdarandale.gitlab.service;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.Constants;
+import in.rishikeshdarandale.gitlab.core.GitlabClient;
+import in.rishikeshdarandale.gitlab.model.Group;
+import in.rishikeshdarandale.gitlab.model.Member;
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Created by rishikesh on 25/6/16.
+ * Group api of gitlab.
+ *
+ * The whole group hierarchy can be crawled into a {@link GroupIndex}, after which groups are found by id or
+ * full path without calling gitlab. Subgroups only have their own api from <code>/api/v4</code> on, against
+ * an older api the hierarchy is rebuilt from the parent ids of the groups.
+ *
+ * @author Rishikesh Darandale
  */
 public class GroupService {
+    private static final Logger LOG = LoggerFactory.getLogger(GroupService.class);
+    private static final int PER_PAGE = 100;
+    private static final String API_V3_PATH = "/api/v3";
+    private static final String TOP_LEVEL_ONLY_PARAM = "top_level_only";
+
+    private final GitlabClient client;
+    private volatile GroupIndex index = new GroupIndex();
+
+    public GroupService(GitlabClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @return the index built by the last crawl, empty until then
+     */
+    public GroupIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the group with the full path, for example <code>parent/child</code>, from the index
+     */
+    public Group findGroup(String fullPath) {
+        return index.getByFullPath(fullPath);
+    }
+
+    /**
+     * Fetches every top level group and its subgroups breadth first, along with their projects and members,
+     * and replaces the index once done.
+     *
+     * The subgroups, projects and members of the groups are fetched concurrently, and every page is a single
+     * request, so at most <code>maxInFlight</code> requests are sent at the same time. Against
+     * <code>/api/v3</code>, which has neither the subgroups api nor the <code>top_level_only</code> filter,
+     * every group is listed at once and the subgroups are found through their parent id instead.
+     *
+     * @param maxInFlight maximum number of requests in flight
+     * @return the new index
+     */
+    public GroupIndex crawl(int maxInFlight) throws AuthenticationException {
+        if(maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight should be at least 1");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(maxInFlight,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gitlab-group-crawler-%d").build());
+        try {
+            GroupIndex crawled = new Crawl(executor).run();
+            LOG.info("Crawled {} groups", crawled.size());
+            this.index = crawled;
+            return crawled;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Drops the cached responses of the group, along with the ones of its subgroups, projects and members
+     * apis, so that the next requests for them are not answered from the response cache.
+     */
+    public void invalidate(long id) {
+        client.invalidate(Constants.GROUPS_API_PATH + '/' + id);
+    }
+
+    /**
+     * Fetches a single group into the index, or drops it along with its subgroups when gitlab no longer knows
+     * it. Meant for the groups reported as created or renamed by a {@link HookReceiver}: a renamed group keeps
+     * its subgroups, whose full paths follow the new one, and the projects and members of a created group are
+     * fetched as well.
+     *
+     * @return the group as indexed, <code>null</code> when it was dropped
+     * @throws ProcessingException when gitlab failed to answer, the index is left untouched then
+     */
+    public Group refreshGroup(long id) throws AuthenticationException {
+        GroupIndex current = index;
+        Group group;
+        try {
+            group = client.getObject(null, Constants.GROUPS_API_PATH + '/' + id, Group.class, null);
+        } catch (NotFoundException e) {
+            current.remove(id);
+            return null;
+        }
+        if(group == null) {
+            throw new ProcessingException("Unable to fetch the group " + id);
+        }
+        if(current.update(group)) {
+            current.setProjects(id, getAll(groupPath(group, Constants.PROJECTS_API_PATH), Project.class, perPage()));
+            current.setMembers(id, getAll(groupPath(group, Constants.MEMBERS_API_PATH), Member.class, perPage()));
+        }
+        return current.getById(id);
+    }
+
+    /**
+     * Fetches the projects of an indexed group again, for example once a {@link HookReceiver} reported a
+     * project created in or moved out of it.
+     *
+     * @return <code>false</code> when the group is not in the index
+     */
+    public boolean refreshProjects(long id) throws AuthenticationException {
+        GroupIndex current = index;
+        Group group = current.getById(id);
+        if(group == null) {
+            return false;
+        }
+        current.setProjects(id, getAll(groupPath(group, Constants.PROJECTS_API_PATH), Project.class, perPage()));
+        return true;
+    }
+
+    /**
+     * Fetches the members of an indexed group again, for example once a {@link HookReceiver} reported a
+     * member added to or removed from it.
+     *
+     * @return <code>false</code> when the group is not in the index
+     */
+    public boolean refreshMembers(long id) throws AuthenticationException {
+        GroupIndex current = index;
+        Group group = current.getById(id);
+        if(group == null) {
+            return false;
+        }
+        current.setMembers(id, getAll(groupPath(group, Constants.MEMBERS_API_PATH), Member.class, perPage()));
+        return true;
+    }
+
+    private MultivaluedMap<String, Object> perPage() {
+        MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+        queryParams.putSingle(Constants.PER_PAGE_PARAM, PER_PAGE);
+        return queryParams;
+    }
+
+    private <T> List<T> getAll(String apiPath, Class<T> zClass, MultivaluedMap<String, Object> queryParams)
+            throws AuthenticationException {
+        List<T> tList = client.getAll(null, apiPath, zClass, queryParams, 1);
+        return tList == null ? Collections.<T>emptyList() : tList;
+    }
+
+    /**
+     * @return whether gitlab has the subgroups api, which came along with <code>/api/v4</code>
+     */
+    private boolean hasSubgroupsApi() {
+        return !CharMatcher.is('/').trimTrailingFrom(client.getApiUrlPrefix()).endsWith(API_V3_PATH);
+    }
+
+    private static String groupPath(Group group, String api) {
+        return Constants.GROUPS_API_PATH + '/' + group.getId() + '/' + api;
+    }
+
+    /**
+     * A single crawl of the hierarchy, every group found schedules the fetch of its subgroups, projects and
+     * members. The executor queue keeps them in breadth first order.
+     */
+    private class Crawl {
+        private final ExecutorService executor;
+        private final GroupIndex crawled = new GroupIndex();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CompletableFuture<GroupIndex> done = new CompletableFuture<>();
+        private Map<Long, List<Group>> subgroups;
+
+        private Crawl(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        GroupIndex run() throws AuthenticationException {
+            submit(() -> {
+                if(hasSubgroupsApi()) {
+                    MultivaluedMap<String, Object> queryParams = perPage();
+                    queryParams.putSingle(TOP_LEVEL_ONLY_PARAM, true);
+                    visit(getAll(Constants.GROUPS_API_PATH, Group.class, queryParams));
+                } else {
+                    visit(groupByParent(getAll(Constants.GROUPS_API_PATH, Group.class, perPage())));
+                }
+            });
+            try {
+                return done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessingException(e);
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof AuthenticationException) {
+                    throw (AuthenticationException) e.getCause();
+                } else if(e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new ProcessingException(e.getCause());
+            }
+        }
+
+        private void visit(List<Group> groups) {
+            for(Group group : groups) {
+                if(!crawled.add(group)) {
+                    continue;
+                }
+                submit(() -> visit(getSubgroups(group)));
+                submit(() -> crawled.setProjects(group.getId(),
+                        getAll(groupPath(group, Constants.PROJECTS_API_PATH), Project.class, perPage())));
+                submit(() -> crawled.setMembers(group.getId(),
+                        getAll(groupPath(group, Constants.MEMBERS_API_PATH), Member.class, perPage())));
+            }
+        }
+
+        private List<Group> getSubgroups(Group group) throws AuthenticationException {
+            if(subgroups != null) {
+                return subgroups.getOrDefault(group.getId(), Collections.<Group>emptyList());
+            }
+            return getAll(groupPath(group, Constants.SUBGROUPS_API_PATH), Group.class, perPage());
+        }
+
+        /**
+         * Keeps the subgroups of every group, and returns the top level groups along with the groups whose
+         * parent is not visible.
+         */
+        private List<Group> groupByParent(List<Group> groups) {
+            Map<Long, List<Group>> byParent = new HashMap<>();
+            Set<Long> ids = new HashSet<>();
+            for(Group group : groups) {
+                ids.add(group.getId());
+            }
+            List<Group> roots = new ArrayList<>();
+            for(Group group : groups) {
+                if(group.getParentId() == null || !ids.contains(group.getParentId())) {
+                    roots.add(group);
+                } else {
+                    byParent.computeIfAbsent(group.getParentId(), parentId -> new ArrayList<>()).add(group);
+                }
+            }
+            // published to the tasks visiting the subgroups by the executor
+            subgroups = byParent;
+            return roots;
+        }
+
+        private void submit(CrawlTask task) {
+            pending.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    if(!done.isDone()) {
+                        task.run();
+                    }
+                } catch (Throwable t) {
+                    done.completeExceptionally(t);
+                } finally {
+                    if(pending.decrementAndGet() == 0) {
+                        done.complete(crawled);
+                    }
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface CrawlTask {
+        void run() throws AuthenticationException;
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A system or group hook delivered by gitlab to a {@link HookReceiver}.
+ *
+ * System hooks name the event in <code>event_name</code>, for example <code>project_update</code> or
+ * <code>user_add_to_group</code>, while the other hooks only carry an <code>object_kind</code>. The ids and
+ * paths are <code>null</code> when the event does not carry them, the whole body is kept as the payload.
+ *
+ * @author Rishikesh Darandale
+ */
+public final class HookEvent {
+    private final String name;
+    private final Long projectId;
+    private final Long groupId;
+    private final String path;
+    private final String oldPath;
+    private final JsonNode payload;
+
+    private HookEvent(JsonNode payload) {
+        this.payload = payload;
+        this.name = text(payload, "event_name", text(payload, "object_kind", null));
+        Long id = number(payload, "project_id");
+        this.projectId = id == null ? number(payload.path("project"), "id") : id;
+        this.groupId = number(payload, "group_id");
+        this.path = text(payload, "path_with_namespace", text(payload, "full_path", null));
+        this.oldPath = text(payload, "old_path_with_namespace", text(payload, "old_full_path", null));
+    }
+
+    /**
+     * @return the event, or <code>null</code> when the body is not a json object naming an event
+     */
+    static HookEvent of(JsonNode payload) {
+        if(payload == null || !payload.isObject()) {
+            return null;
+        }
+        HookEvent event = new HookEvent(payload);
+        return event.name == null ? null : event;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @return the path with namespace of the project, or the full path of the group
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the path before a rename or a transfer
+     */
+    public String getOldPath() {
+        return oldPath;
+    }
+
+    public JsonNode getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "HookEvent{name='" + name + "', projectId=" + projectId + ", groupId=" + groupId
+                + ", path='" + path + "', oldPath='" + oldPath + "'}";
+    }
+
+    private static String text(JsonNode node, String field, String defaultValue) {
+        JsonNode value = node.get(field);
+        return value == null || !value.isTextual() ? defaultValue : value.asText();
+    }
+
+    private static Long number(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || !value.canConvertToLong() ? null : value.asLong();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import in.rishikeshdarandale.gitlab.core.ObjectMapperProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Embedded http endpoint receiving the system hooks and group hooks of gitlab, so that the catalogs of the
+ * client can be updated when something changes instead of polling for it.
+ *
+ * Every hook posted to {@link #PATH} is answered right away, and handed over to the listeners on a single
+ * background thread. When a secret token is configured, the hooks without the same
+ * <code>X-Gitlab-Token</code> header are refused, and so are the hooks larger than the maximum body size.
+ * The receiver does not run over https, so it is meant to listen on a private network next to gitlab.
+ *
+ * @see CatalogUpdater
+ * @author Rishikesh Darandale
+ */
+public class HookReceiver implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(HookReceiver.class);
+    public static final String PATH = "/hooks";
+    static final String TOKEN_HEADER = "X-Gitlab-Token";
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+    private final HttpServer server;
+    private final byte[] secretToken;
+    private final int maxBodySize;
+    private final List<HookListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gitlab-hook-dispatcher-%d").build());
+
+    /**
+     * Starts listening on the address, use port 0 for any free port.
+     *
+     * @param secretToken the secret token of the hooks, <code>null</code> to accept every hook
+     */
+    public HookReceiver(InetSocketAddress address, String secretToken) throws IOException {
+        this(address, secretToken, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    /**
+     * Starts listening on the address, use port 0 for any free port.
+     *
+     * @param secretToken the secret token of the hooks, <code>null</code> to accept every hook
+     * @param maxBodySize the size in bytes above which hooks are refused with a <code>413</code>
+     */
+    public HookReceiver(InetSocketAddress address, String secretToken, int maxBodySize) throws IOException {
+        if(maxBodySize < 1) {
+            throw new IllegalArgumentException("maxBodySize should be at least 1");
+        }
+        this.maxBodySize = maxBodySize;
+        this.secretToken = secretToken == null ? null : secretToken.getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(PATH, this::handle);
+        this.server.start();
+    }
+
+    public HookReceiver addListener(HookListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public void removeListener(HookListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the address the receiver listens on, with the actual port
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        dispatcher.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if(!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+            } else if(!isAuthorized(exchange.getRequestHeaders().getFirst(TOKEN_HEADER))) {
+                exchange.sendResponseHeaders(401, -1);
+            } else if(isTooLarge(exchange.getRequestHeaders().getFirst("Content-Length"))) {
+                exchange.sendResponseHeaders(413, -1);
+            } else {
+                // the length is not known up front for chunked bodies, one byte past the maximum tells them apart
+                byte[] body = ByteStreams.toByteArray(ByteStreams.limit(exchange.getRequestBody(), maxBodySize + 1L));
+                HookEvent event = body.length > maxBodySize ? null : read(body);
+                if(body.length > maxBodySize) {
+                    exchange.sendResponseHeaders(413, -1);
+                } else if(event == null) {
+                    exchange.sendResponseHeaders(400, -1);
+                } else {
+                    exchange.sendResponseHeaders(dispatch(event) ? 200 : 503, -1);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean isAuthorized(String token) {
+        return secretToken == null
+                || token != null && MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean isTooLarge(String contentLength) {
+        try {
+            return contentLength != null && Long.parseLong(contentLength.trim()) > maxBodySize;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private HookEvent read(byte[] body) {
+        try {
+            JsonNode payload = ObjectMapperProvider.getObjectMapper().readTree(body);
+            return HookEvent.of(payload);
+        } catch (IOException e) {
+            LOG.debug("Unable to read the hook", e);
+            return null;
+        }
+    }
+
+    private boolean dispatch(HookEvent event) {
+        try {
+            dispatcher.execute(() -> {
+                for(HookListener listener : listeners) {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Listener failed on {}", event, e);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+}
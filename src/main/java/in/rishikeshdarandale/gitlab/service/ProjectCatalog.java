@@ -0,0 +1,104 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import in.rishikeshdarandale.gitlab.model.Project;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory catalog of projects, kept up to date by {@link ProjectService#sync(int)}.
+ *
+ * Projects are looked up by id or by path with namespace (case insensitive). The catalog remembers when the
+ * last sync started, which is the watermark of the next delta sync.
+ *
+ * @author Rishikesh Darandale
+ */
+public class ProjectCatalog {
+    private static final long NO_WATERMARK = Long.MIN_VALUE;
+    private final Map<Long, Project> byId = new ConcurrentHashMap<>();
+    private final Map<String, Project> byPath = new ConcurrentHashMap<>();
+    private final AtomicLong watermark = new AtomicLong(NO_WATERMARK);
+
+    public Project getById(long id) {
+        return byId.get(id);
+    }
+
+    public Project getByPathWithNamespace(String pathWithNamespace) {
+        return pathWithNamespace == null ? null : byPath.get(pathWithNamespace.toLowerCase(Locale.ROOT));
+    }
+
+    public Collection<Project> getProjects() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * @return the time the last sync started, or <code>null</code> before the first sync
+     */
+    public Date getWatermark() {
+        long time = watermark.get();
+        return time == NO_WATERMARK ? null : new Date(time);
+    }
+
+    /**
+     * Drops the project, for example once it has been deleted. A delta sync does not report deleted projects.
+     */
+    public void remove(long id) {
+        Project project = byId.remove(id);
+        if(project != null && project.getPathWithNamespace() != null) {
+            byPath.remove(project.getPathWithNamespace().toLowerCase(Locale.ROOT), project);
+        }
+    }
+
+    /**
+     * Adds the project, or replaces the known one with the same id
+     */
+    void put(Project project) {
+        if(project.getId() == null) {
+            return;
+        }
+        Project previous = byId.put(project.getId(), project);
+        if(previous != null && previous.getPathWithNamespace() != null) {
+            // the project may have been renamed or transferred
+            byPath.remove(previous.getPathWithNamespace().toLowerCase(Locale.ROOT), previous);
+        }
+        if(project.getPathWithNamespace() != null) {
+            byPath.put(project.getPathWithNamespace().toLowerCase(Locale.ROOT), project);
+        }
+    }
+
+    /**
+     * Moves the watermark forward once a sync is done. The projects put by a refresh never move it, as the
+     * projects older than a refreshed one may not have been synced yet.
+     */
+    void advanceWatermark(Date time) {
+        // concurrent syncs may finish out of order, the watermark never goes back
+        watermark.accumulateAndGet(time.getTime(), Math::max);
+    }
+}
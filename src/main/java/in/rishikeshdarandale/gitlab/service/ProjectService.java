@@ -18,8 +18,112 @@
  */
 package in.rishikeshdarandale.gitlab.service;
 
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.Constants;
+import in.rishikeshdarandale.gitlab.core.GitlabClient;
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
- * Created by rishikesh on 25/6/16.
+ * Project api of gitlab.
+ *
+ * The projects visible to the client are kept in a {@link ProjectCatalog}. The first sync scans every page,
+ * the following ones only fetch the projects with activity since the previous sync started.
+ *
+ * @author Rishikesh Darandale
  */
 public class ProjectService {
+    private static final Logger LOG = LoggerFactory.getLogger(ProjectService.class);
+    private static final int PER_PAGE = 100;
+    private static final long WATERMARK_OVERLAP = TimeUnit.MINUTES.toMillis(1);
+    static final String LAST_ACTIVITY_AFTER_PARAM = "last_activity_after";
+    static final String ID = "id";
+    static final String ASCENDING = "asc";
+
+    private final GitlabClient client;
+    private final ProjectCatalog catalog = new ProjectCatalog();
+
+    public ProjectService(GitlabClient client) {
+        this.client = client;
+    }
+
+    public ProjectCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Brings the catalog up to date and merges the fetched projects into it.
+     *
+     * Projects are listed by ascending id, an order which the activity of the projects during the sync does
+     * not change, so that no project slips between two pages fetched concurrently. Once the catalog holds a
+     * watermark only the projects active after it are requested, with an overlap covering a skew between the
+     * clocks of the client and gitlab. The watermark is the time the last sync started.
+     *
+     * @param parallelism maximum number of pages fetched at the same time
+     * @return number of projects fetched
+     */
+    public int sync(int parallelism) throws AuthenticationException {
+        Date startedAt = new Date();
+        MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+        queryParams.putSingle(Constants.PER_PAGE_PARAM, PER_PAGE);
+        queryParams.putSingle(Constants.ORDER_BY_PARAM, ID);
+        queryParams.putSingle(Constants.SORT_PARAM, ASCENDING);
+        Date watermark = catalog.getWatermark();
+        if(watermark != null) {
+            queryParams.putSingle(LAST_ACTIVITY_AFTER_PARAM, DateTimeFormatter.ISO_INSTANT.format(
+                    new Date(watermark.getTime() - WATERMARK_OVERLAP).toInstant()));
+        }
+        List<Project> projects = client.getAll(null, Constants.PROJECTS_API_PATH, Project.class, queryParams,
+                parallelism);
+        if(projects == null) {
+            return 0;
+        }
+        for(Project project : projects) {
+            catalog.put(project);
+        }
+        catalog.advanceWatermark(startedAt);
+        LOG.info("Synced {} projects {}", projects.size(), watermark == null ? "in a full scan" : "since " + watermark);
+        return projects.size();
+    }
+
+    /**
+     * Drops the cached responses of the project, so that the next request for it is not answered from the
+     * response cache.
+     */
+    public void invalidate(long id) {
+        client.invalidate(Constants.PROJECTS_API_PATH + '/' + id);
+    }
+
+    /**
+     * Fetches a single project into the catalog, or drops it when gitlab no longer knows it. Meant for
+     * the projects reported as changed by a {@link HookReceiver}, which a delta sync would miss as long as
+     * their last activity did not move.
+     *
+     * @return the fetched project, <code>null</code> when it was dropped
+     * @throws ProcessingException when gitlab failed to answer, the catalog is left untouched then
+     */
+    public Project refresh(long id) throws AuthenticationException {
+        Project project;
+        try {
+            project = client.getObject(null, Constants.PROJECTS_API_PATH + '/' + id, Project.class, null);
+        } catch (NotFoundException e) {
+            catalog.remove(id);
+            return null;
+        }
+        if(project == null) {
+            throw new ProcessingException("Unable to fetch the project " + id);
+        }
+        catalog.put(project);
+        return project;
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests of the pooled apache transport of ConnectionService, sending real requests to a stub gitlab.
+ *
+ * @author Rishikesh Darandale
+ */
+public class ConnectionPoolTest {
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 2;
+
+    private StubGitlabServer server;
+    private ConnectionService connectionService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubGitlabServer().respond("projects/1", "{\"id\":1,\"name\":\"project\"}");
+        connectionService = StubGitlabServer.connectionService()
+                .maxConnectionsPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .connectionRequestTimeout(1000)
+                .build();
+        connectionService.setPrivateToken(StubGitlabServer.PRIVATE_TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        connectionService.close();
+        server.close();
+    }
+
+    @Test
+    public void testNotFoundResponsesReleaseTheirConnection() throws AuthenticationException {
+        // Given
+        for(int id = 2; id < 2 + MAX_CONNECTIONS_PER_ROUTE * 3; id++) {
+            try {
+                connectionService.getObject(null, server.getApiUrl(), "projects/" + id, Project.class, null);
+                Assert.fail("Missing project should not be found");
+            } catch (NotFoundException e) {
+                // expected
+            }
+        }
+        // When
+        Project project = connectionService.getObject(null, server.getApiUrl(), "projects/1", Project.class, null);
+        // Then
+        Assert.assertEquals(Long.valueOf(1), project.getId());
+    }
+
+    @Test
+    public void testBatchOfMostlyMissingIds() {
+        // Given
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(3).backoff(1, 1).build();
+        connectionService.setRetryPolicy(policy);
+        List<Integer> ids = new ArrayList<>();
+        for(int id = 1; id <= MAX_CONNECTIONS_PER_ROUTE * 10; id++) {
+            ids.add(id);
+        }
+        // When
+        List<ItemResult<Project>> results = connectionService.getObjects(null, server.getApiUrl(), "projects/{id}",
+                ids, Project.class, null, MAX_CONNECTIONS_PER_ROUTE * 2);
+        // Then
+        Assert.assertEquals(ids.size(), results.size());
+        Assert.assertEquals(Long.valueOf(1), results.get(0).getValue().getId());
+        for(ItemResult<Project> result : results.subList(1, results.size())) {
+            Assert.assertTrue(String.valueOf(result.getFailure()), result.isNotFound());
+        }
+        Assert.assertEquals(0, policy.getRetryCount());
+    }
+}
@@ -18,29 +18,50 @@
  */
 package in.rishikeshdarandale.gitlab.core;
 
+import in.rishikeshdarandale.gitlab.model.Group;
 import in.rishikeshdarandale.gitlab.model.PaginatedList;
 import in.rishikeshdarandale.gitlab.model.Project;
 import in.rishikeshdarandale.gitlab.model.Session;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.*;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * ConnectionService test class
@@ -49,11 +70,14 @@ import java.util.List;
  */
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(ClientBuilder.class)
+@PowerMockIgnore("javax.net.ssl.*")
 public class ConnectionServiceTest {
     @Mock private Client mockClient;
     @Mock private Response mockResponse;
     @Mock private Invocation.Builder mockBuilder;
     @Mock private WebTarget mockWebTarget;
+    @Mock private AsyncInvoker mockAsyncInvoker;
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
     private ConnectionService connectionService;
 
     @Before
@@ -66,6 +90,11 @@ public class ConnectionServiceTest {
         Mockito.when(mockBuilder.post(Matchers.any())).thenReturn(this.mockResponse);
         Mockito.when(mockBuilder.put(Matchers.any())).thenReturn(this.mockResponse);
         Mockito.when(mockBuilder.delete()).thenReturn(this.mockResponse);
+        Mockito.when(mockBuilder.async()).thenReturn(this.mockAsyncInvoker);
+        Mockito.when(mockAsyncInvoker.get(Matchers.<InvocationCallback<Response>>any())).thenAnswer(invocation -> {
+            ((InvocationCallback<Response>) invocation.getArguments()[0]).completed(this.mockResponse);
+            return null;
+        });
 
         Mockito.when(mockWebTarget.path(Matchers.anyString())).thenReturn(mockWebTarget);
         Mockito.when(mockWebTarget.request()).thenReturn(mockBuilder);
@@ -235,4 +264,740 @@ public class ConnectionServiceTest {
         Assert.assertNotNull(list);
         Assert.assertEquals(new Integer(45), list.getTotalItems());
     }
+
+    @Test
+    public void testGetObjectAsync() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        // When
+        CompletableFuture<Project> future = connectionService.getObjectAsync(null,
+                Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+        // Then
+        Assert.assertSame(mockProject, future.get());
+    }
+
+    @Test
+    public void testGetObjectAsyncWithUnAuthorized() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.UNAUTHORIZED.getStatusCode());
+        // When
+        CompletableFuture<Project> future = connectionService.getObjectAsync(null,
+                Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+        // Then
+        try {
+            future.get();
+            Assert.fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof AuthenticationException);
+        }
+    }
+
+    @Test
+    public void testGetListAsyncWithExecutor() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn("1");
+        List<Project> projectList = new ArrayList<>();
+        projectList.add(new Project());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(projectList);
+        // When
+        CompletableFuture<PaginatedList<Project>> future = connectionService.getListAsync(null,
+                Constants.GITLAB_API_URL, Constants.PROJECTS_API_PATH, Project.class, null, Runnable::run);
+        // Then
+        Assert.assertEquals(new Integer(1), future.get().getTotalItems());
+    }
+
+    @Test
+    public void testGetAll() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockWebTarget.queryParam(Mockito.anyString(), Mockito.anyObject())).thenReturn(mockWebTarget);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL_PAGES)).thenReturn("3");
+        List<Project> projectList = new ArrayList<>();
+        projectList.add(new Project());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(projectList);
+        // When
+        List<Project> projects = connectionService.getAll(null, Constants.PROJECTS_API_PATH, Project.class, null, 2);
+        // Then
+        Assert.assertEquals(3, projects.size());
+        Mockito.verify(this.mockAsyncInvoker, Mockito.times(2)).get(Matchers.<InvocationCallback<Response>>any());
+    }
+
+    @Test
+    public void testNextLinkIsReadFromLinkHeader() {
+        // Given
+        String next = "https://gitlab.example.com/api/v4/projects?id_after=42&order_by=id&pagination=keyset";
+        String header = "<https://gitlab.example.com/api/v4/projects?order_by=id&pagination=keyset>; rel=\"first\", "
+                + "<" + next + ">; rel=\"next\"";
+        // Then
+        Assert.assertEquals(next, ConnectionService.getNextLink(header));
+        Assert.assertNull(ConnectionService.getNextLink("<https://gitlab.example.com/api/v4/projects>; rel=\"first\""));
+        Assert.assertNull(ConnectionService.getNextLink(null));
+    }
+
+    @Test
+    public void testGetAllFollowsKeysetCursors() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockWebTarget.queryParam(Matchers.anyString(), Matchers.<Object>anyVararg()))
+                .thenReturn(this.mockWebTarget);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        String link = "<https://gitlab.example.com/api/v4/projects?id_after=%d&order_by=id&pagination=keyset>; "
+                + "rel=\"next\"";
+        Mockito.when(this.mockResponse.getHeaderString(Constants.LINK)).thenReturn(String.format(link, 1))
+                .thenReturn(String.format(link, 2)).thenReturn(null);
+        List<Project> projectList = new ArrayList<>();
+        projectList.add(new Project());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(projectList);
+        MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+        queryParams.putSingle(Constants.PAGINATION_PARAM, Constants.KEYSET_PAGINATION);
+        queryParams.putSingle(Constants.ORDER_BY_PARAM, "id");
+        // When
+        List<Project> projects = connectionService.getAll(null, Constants.PROJECTS_API_PATH, Project.class,
+                queryParams, 2);
+        // Then
+        Assert.assertEquals(3, projects.size());
+        Mockito.verify(this.mockWebTarget).queryParam("id_after", "1");
+        Mockito.verify(this.mockWebTarget).queryParam("id_after", "2");
+        Mockito.verify(this.mockWebTarget, Mockito.never()).queryParam(Matchers.eq(Constants.PAGE_PARAM),
+                Matchers.<Object>anyVararg());
+    }
+
+    @Test
+    public void testCountReadsTotalWithoutBody() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockWebTarget.queryParam(Matchers.anyString(), Matchers.<Object>anyVararg()))
+                .thenReturn(this.mockWebTarget);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn("42").thenReturn(null);
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL_PAGES)).thenReturn("7").thenReturn(null);
+        // When
+        Long total = connectionService.count(null, Constants.PROJECTS_API_PATH, null);
+        Long totalPages = connectionService.countAsync(null, Constants.PROJECTS_API_PATH, null)
+                .get(5, TimeUnit.SECONDS);
+        Long unknown = connectionService.count(null, Constants.PROJECTS_API_PATH, null);
+        // Then
+        Assert.assertEquals(Long.valueOf(42), total);
+        Assert.assertEquals(Long.valueOf(7), totalPages);
+        Assert.assertEquals(Long.valueOf(-1), unknown);
+        Mockito.verify(this.mockWebTarget, Mockito.times(3)).queryParam(Constants.PER_PAGE_PARAM, 1);
+        Mockito.verify(this.mockResponse, Mockito.never()).readEntity(Matchers.any(GenericType.class));
+        Mockito.verify(this.mockResponse, Mockito.times(3)).close();
+    }
+
+    @Test
+    public void testGetListWithProjection() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(
+                "[{\"id\":1,\"name\":\"api\",\"description\":\"Api\"}]".getBytes(StandardCharsets.UTF_8)));
+        // When
+        PaginatedList<Project> page = connectionService.getList(null, Constants.PROJECTS_API_PATH,
+                JsonProjection.of(Project.class, "id", "name"), null);
+        // Then
+        Assert.assertEquals(1, page.gettList().size());
+        Assert.assertEquals("api", page.gettList().get(0).getName());
+        Assert.assertNull(page.gettList().get(0).getDescription());
+        Mockito.verify(this.mockResponse, Mockito.never()).readEntity(Matchers.any(GenericType.class));
+    }
+
+    @Test
+    public void testGetIterable() {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        List<String> log = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            if(Constants.PAGE_PARAM.equals(invocation.getArguments()[0])) {
+                log.add("request page " + invocation.getArguments()[1]);
+            }
+            return mockWebTarget;
+        }).when(this.mockWebTarget).queryParam(Mockito.anyString(), Mockito.anyObject());
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_NEXT_PAGE)).thenReturn("2", "3", "");
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class)))
+                .thenReturn(projects(1, 2), projects(3, 4), projects(5, 6));
+        // When
+        PaginatedIterable<Project> projects = connectionService.getIterable(null, Constants.PROJECTS_API_PATH,
+                Project.class, null);
+        Mockito.verifyZeroInteractions(this.mockAsyncInvoker);
+        for(Project project : projects) {
+            log.add("consume " + project.getId());
+        }
+        // Then
+        Assert.assertEquals(Arrays.asList("request page 1", "request page 2", "consume 1", "consume 2",
+                "request page 3", "consume 3", "consume 4", "consume 5", "consume 6"), log);
+        Mockito.verify(this.mockAsyncInvoker, Mockito.times(3)).get(Matchers.<InvocationCallback<Response>>any());
+    }
+
+    private static List<Project> projects(long... ids) {
+        List<Project> projectList = new ArrayList<>();
+        for(long id : ids) {
+            Project project = new Project();
+            project.setId(id);
+            projectList.add(project);
+        }
+        return projectList;
+    }
+
+    @Test
+    public void testStreamList() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn("2");
+        String json = "[{\"id\":1,\"name\":\"one\",\"path\":\"one\",\"web_url\":\"http://x\"},"
+                + "{\"id\":2,\"name\":\"two\",\"path\":\"two\"}]";
+        Mockito.when(this.mockResponse.readEntity(InputStream.class))
+                .thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        List<Group> groups = new ArrayList<>();
+        // When
+        PaginatedList<Group> page = connectionService.streamList(null, "groups", Group.class, null, groups::add);
+        // Then
+        Assert.assertEquals(new Integer(2), page.getTotalItems());
+        Assert.assertTrue(page.gettList().isEmpty());
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals("two", groups.get(1).getName());
+    }
+
+    @Test
+    public void testBuilderUsesPoolingConnector() {
+        // When
+        ConnectionService pooledService = ConnectionService.builder()
+                .maxConnections(20)
+                .maxConnectionsPerRoute(10)
+                .connectionRequestTimeout(1000)
+                .idleTimeout(60000)
+                .build();
+        // Then
+        try {
+            ClientConfig config = (ClientConfig) pooledService.getClient().getConfiguration();
+            Assert.assertTrue(config.getConnectorProvider() instanceof ApacheConnectorProvider);
+            Assert.assertNotSame(connectionService, pooledService);
+        } finally {
+            pooledService.close();
+        }
+    }
+
+    @Test
+    public void testGetObjectServedFromCacheWhenNotModified() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        connectionService.setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES));
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        try {
+            // When
+            Project first = connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234", Project.class,
+                    null);
+            Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.NOT_MODIFIED.getStatusCode());
+            Project second = connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234", Project.class,
+                    null);
+            // Then
+            Assert.assertSame(first, second);
+            Mockito.verify(this.mockResponse, Mockito.times(1)).readEntity(Project.class);
+            ArgumentCaptor<MultivaluedMap> headers = ArgumentCaptor.forClass(MultivaluedMap.class);
+            Mockito.verify(this.mockBuilder, Mockito.times(2)).headers(headers.capture());
+            Assert.assertEquals("\"v1\"", headers.getAllValues().get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+        } finally {
+            connectionService.setResponseCache(null);
+        }
+    }
+
+    @Test
+    public void testGetListServedFromCacheWhenNotModified() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        connectionService.setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES));
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn("45");
+        List<Project> projectList = new ArrayList<>();
+        projectList.add(new Project());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(projectList);
+        try {
+            // When
+            connectionService.getList(null, Constants.PROJECTS_API_PATH, Project.class, null);
+            Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.NOT_MODIFIED.getStatusCode());
+            Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn(null);
+            PaginatedList<Project> list = connectionService.getList(null, Constants.PROJECTS_API_PATH,
+                    Project.class, null);
+            // Then
+            Assert.assertSame(projectList, list.gettList());
+            Assert.assertEquals(new Integer(45), list.getTotalItems());
+            Assert.assertEquals(1, connectionService.getResponseCache().stats().hitCount());
+        } finally {
+            connectionService.setResponseCache(null);
+        }
+    }
+
+    @Test
+    public void testGetListRevalidatedFromPersistentCache() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        PersistentResponseStore store = new PersistentResponseStore(temporaryFolder.getRoot().toPath(), 4096, 2);
+        connectionService.setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES, store));
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+        Mockito.when(this.mockResponse.getHeaderString(Constants.X_TOTAL)).thenReturn("1");
+        List<Group> groupList = new ArrayList<>();
+        groupList.add(new Group());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(groupList);
+        Mockito.when(this.mockResponse.readEntity(byte[].class))
+                .thenReturn("[{\"id\":7,\"name\":\"seven\"}]".getBytes(StandardCharsets.UTF_8));
+        try {
+            connectionService.getList(null, "groups", Group.class, null);
+            // When the process restarts with an empty in memory cache
+            connectionService.setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES, store));
+            Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.NOT_MODIFIED.getStatusCode());
+            PaginatedList<Group> list = connectionService.getList(null, "groups", Group.class, null);
+            // Then
+            Mockito.verify(this.mockResponse).bufferEntity();
+            Assert.assertEquals(new Integer(1), list.getTotalItems());
+            Assert.assertEquals("seven", list.gettList().get(0).getName());
+        } finally {
+            connectionService.setResponseCache(null);
+            store.close();
+        }
+    }
+
+    @Test
+    public void testIdenticalRequestsAreCoalesced() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        connectionService.setRequestCoalescing(true);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        List<InvocationCallback<Response>> callbacks = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            callbacks.add((InvocationCallback<Response>) invocation.getArguments()[0]);
+            return null;
+        }).when(mockAsyncInvoker).get(Matchers.<InvocationCallback<Response>>any());
+        try {
+            // When
+            CompletableFuture<Project> first = connectionService.getObjectAsync("admin",
+                    Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+            CompletableFuture<Project> second = connectionService.getObjectAsync("admin",
+                    Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+            CompletableFuture<Project> other = connectionService.getObjectAsync(null,
+                    Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+            callbacks.forEach(callback -> callback.completed(this.mockResponse));
+            // Then
+            Assert.assertEquals(2, callbacks.size());
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertSame(mockProject, other.get());
+        } finally {
+            connectionService.setRequestCoalescing(false);
+        }
+    }
+
+    @Test
+    public void testThrottledRequestIsSentAgain() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        connectionService.setRateLimiter(new RequestRateLimiter(100));
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(this.mockResponse.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("0");
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        Mockito.when(this.mockBuilder.get()).thenAnswer(invocation -> {
+            // gitlab accepts the request once it has been throttled
+            Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+            return this.mockResponse;
+        }).thenReturn(this.mockResponse);
+        try {
+            // When
+            Project project = connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234",
+                    Project.class, null);
+            // Then
+            Assert.assertSame(mockProject, project);
+        } finally {
+            connectionService.setRateLimiter(null);
+        }
+    }
+
+    @Test
+    public void testThrottledAsyncRequestDoesNotBlockTheCaller() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RequestRateLimiter limiter = new RequestRateLimiter(100);
+        Response throttled = Mockito.mock(Response.class);
+        Mockito.when(throttled.getStatus()).thenReturn(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(throttled.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("1");
+        limiter.onResponse(Constants.GITLAB_API_URL, "Valid-private-token", throttled);
+        connectionService.setRateLimiter(limiter);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        try {
+            long startedAt = System.nanoTime();
+            // When
+            CompletableFuture<Project> future = connectionService.getObjectAsync(null,
+                    Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+            // Then
+            Assert.assertTrue(System.nanoTime() - startedAt < TimeUnit.MILLISECONDS.toNanos(500));
+            Assert.assertFalse(future.isDone());
+            Assert.assertSame(mockProject, future.get(5, TimeUnit.SECONDS));
+        } finally {
+            connectionService.setRateLimiter(null);
+        }
+    }
+
+    @Test(expected = ClientErrorException.class)
+    public void testGetListWithTooManyRequests() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        connectionService.setRateLimiter(new RequestRateLimiter(100, false, 1));
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(this.mockResponse.getStatusInfo()).thenReturn(new Response.StatusType() {
+            public int getStatusCode() {
+                return Constants.HTTP_TOO_MANY_REQUESTS;
+            }
+
+            public Response.Status.Family getFamily() {
+                return Response.Status.Family.CLIENT_ERROR;
+            }
+
+            public String getReasonPhrase() {
+                return "Too Many Requests";
+            }
+        });
+        Mockito.when(this.mockResponse.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("0");
+        try {
+            // When
+            connectionService.getList(null, Constants.PROJECTS_API_PATH, Project.class, null);
+        } finally {
+            // Then
+            Mockito.verify(this.mockBuilder, Mockito.times(2)).get();
+            connectionService.setRateLimiter(null);
+        }
+    }
+
+    @Test
+    public void testFailedRequestIsRetried() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().backoff(1, 10).build();
+        connectionService.setRetryPolicy(Constants.PROJECTS_API_PATH, policy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        Mockito.when(this.mockBuilder.get()).thenReturn(this.mockResponse).thenAnswer(invocation -> {
+            Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+            return this.mockResponse;
+        });
+        try {
+            // When
+            Project project = connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234",
+                    Project.class, null);
+            // Then
+            Assert.assertSame(mockProject, project);
+            Assert.assertEquals(1, policy.getRetryCount());
+            Mockito.verify(this.mockBuilder, Mockito.times(2)).get();
+        } finally {
+            connectionService.setRetryPolicy(Constants.PROJECTS_API_PATH, null);
+        }
+    }
+
+    @Test
+    public void testFailedAsyncRequestIsRetried() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().backoff(1, 10).build();
+        connectionService.setRetryPolicy(policy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.BAD_GATEWAY.getStatusCode())
+                .thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        try {
+            // When
+            Project project = connectionService.getObjectAsync(null, Constants.PROJECTS_API_PATH + "/1234",
+                    Project.class, null).get(5, TimeUnit.SECONDS);
+            // Then
+            Assert.assertSame(mockProject, project);
+            Assert.assertEquals(1, policy.getRetryCount());
+        } finally {
+            connectionService.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().hedge(20, 0).build();
+        connectionService.setRetryPolicy(policy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        AtomicInteger calls = new AtomicInteger();
+        Mockito.when(this.mockBuilder.get()).thenAnswer(invocation -> {
+            if(calls.getAndIncrement() == 0) {
+                // the first request is stuck behind a slow server
+                Thread.sleep(2000);
+            }
+            return this.mockResponse;
+        });
+        try {
+            // When
+            long startedAt = System.nanoTime();
+            Project project = connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234",
+                    Project.class, null);
+            // Then
+            Assert.assertSame(mockProject, project);
+            Assert.assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(1));
+            Assert.assertEquals(1, policy.getHedgeCount());
+            Assert.assertEquals(1, policy.getHedgeWinCount());
+        } finally {
+            connectionService.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    public void testSlowAsyncRequestIsHedged() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().hedge(20, 0).build();
+        connectionService.setRetryPolicy(policy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        List<InvocationCallback<Response>> stuck = new ArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            InvocationCallback<Response> callback = (InvocationCallback<Response>) invocation.getArguments()[0];
+            if(calls.getAndIncrement() == 0) {
+                // the first request is stuck behind a slow server
+                stuck.add(callback);
+            } else {
+                callback.completed(this.mockResponse);
+            }
+            return null;
+        }).when(mockAsyncInvoker).get(Matchers.<InvocationCallback<Response>>any());
+        Response lateResponse = Mockito.mock(Response.class);
+        Mockito.when(lateResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        try {
+            // When
+            Project project = connectionService.getObjectAsync(null, Constants.PROJECTS_API_PATH + "/1234",
+                    Project.class, null).get(1, TimeUnit.SECONDS);
+            stuck.get(0).completed(lateResponse);
+            // Then
+            Assert.assertSame(mockProject, project);
+            Assert.assertEquals(2, calls.get());
+            Assert.assertEquals(1, policy.getHedgeCount());
+            Assert.assertEquals(1, policy.getHedgeWinCount());
+            Mockito.verify(lateResponse).close();
+            Mockito.verify(lateResponse, Mockito.never()).readEntity(Project.class);
+        } finally {
+            connectionService.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    public void testFastAsyncRequestIsNotHedged() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().hedge(20, 0).build();
+        connectionService.setRetryPolicy(policy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(new Project());
+        try {
+            // When
+            connectionService.getObjectAsync(null, Constants.PROJECTS_API_PATH + "/1234", Project.class, null)
+                    .get(1, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            // Then
+            Assert.assertEquals(0, policy.getHedgeCount());
+            Mockito.verify(mockAsyncInvoker, Mockito.times(1)).get(Matchers.<InvocationCallback<Response>>any());
+        } finally {
+            connectionService.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    public void testHedgedRequestRecordsTheMetricsOfTheWinner() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy policy = RetryPolicy.builder().hedge(20, 0).build();
+        connectionService.setRetryPolicy(policy);
+        List<RequestMetrics> ended = new ArrayList<>();
+        connectionService.setRequestListener(new RequestListener() {
+            @Override
+            public void onRequestEnd(RequestMetrics metrics) {
+                ended.add(metrics);
+            }
+        });
+        Response slowResponse = Mockito.mock(Response.class);
+        Mockito.when(slowResponse.getStatus()).thenReturn(Response.Status.BAD_GATEWAY.getStatusCode());
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(new Project());
+        AtomicInteger calls = new AtomicInteger();
+        Mockito.when(this.mockBuilder.get()).thenAnswer(invocation -> {
+            if(calls.getAndIncrement() == 0) {
+                // the first request answers once the hedged one has won
+                Thread.sleep(300);
+                return slowResponse;
+            }
+            return this.mockResponse;
+        });
+        try {
+            // When
+            connectionService.getObject(null, Constants.PROJECTS_API_PATH + "/1234", Project.class, null);
+            Thread.sleep(500);
+            // Then
+            Assert.assertEquals(1, ended.size());
+            Assert.assertEquals(Response.Status.OK.getStatusCode(), ended.get(0).getStatus());
+            Assert.assertTrue(ended.get(0).getTimeToFirstByteNanos() < TimeUnit.MILLISECONDS.toNanos(300));
+        } finally {
+            connectionService.setRequestListener(null);
+            connectionService.setRetryPolicy(null);
+        }
+    }
+
+    @Test
+    public void testInterruptedRequestIsNotRetried() throws Exception {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        RetryPolicy backoffPolicy = RetryPolicy.builder().maxAttempts(5).backoff(10000, 10000).build();
+        RetryPolicy hedgingPolicy = RetryPolicy.builder().maxAttempts(5).hedge(20, 0).build();
+        connectionService.setRetryPolicy(Constants.PROJECTS_API_PATH, backoffPolicy);
+        connectionService.setRetryPolicy(Constants.GROUPS_API_PATH, hedgingPolicy);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        Invocation.Builder slowBuilder = Mockito.mock(Invocation.Builder.class);
+        WebTarget slowTarget = Mockito.mock(WebTarget.class);
+        Mockito.when(this.mockWebTarget.path(Constants.GROUPS_API_PATH + "/1")).thenReturn(slowTarget);
+        Mockito.when(slowTarget.request()).thenReturn(slowBuilder);
+        Mockito.when(slowBuilder.accept(Matchers.<String>anyVararg())).thenReturn(slowBuilder);
+        Mockito.when(slowBuilder.headers(Matchers.any())).thenReturn(slowBuilder);
+        Mockito.when(slowBuilder.get()).thenAnswer(invocation -> {
+            // neither the request nor its hedge ever answer in time
+            Thread.sleep(2000);
+            return this.mockResponse;
+        });
+        try {
+            // When
+            Throwable backoffFailure = interrupted(() -> connectionService.getObject(null,
+                    Constants.PROJECTS_API_PATH + "/1", Project.class, null));
+            Throwable hedgeFailure = interrupted(() -> connectionService.getObject(null,
+                    Constants.GROUPS_API_PATH + "/1", Group.class, null));
+            // Then
+            Assert.assertTrue(backoffFailure.getCause() instanceof InterruptedException);
+            Assert.assertEquals(1, backoffPolicy.getRetryCount());
+            Assert.assertTrue(hedgeFailure.getCause() instanceof InterruptedException);
+            Assert.assertEquals(0, hedgingPolicy.getRetryCount());
+        } finally {
+            connectionService.setRetryPolicy(Constants.PROJECTS_API_PATH, null);
+            connectionService.setRetryPolicy(Constants.GROUPS_API_PATH, null);
+        }
+    }
+
+    @Test
+    public void testBaseTargetAndHeadersAreReused() throws AuthenticationException {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockWebTarget.queryParam(Matchers.anyString(), Matchers.<Object>anyVararg()))
+                .thenReturn(this.mockWebTarget);
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(Matchers.any(GenericType.class))).thenReturn(new ArrayList<>());
+        MultivaluedMap<String, Object> queryParams = new MultivaluedHashMap<>();
+        queryParams.put("scope", Arrays.asList("owned", "starred"));
+        // When
+        connectionService.getList(null, Constants.PROJECTS_API_PATH, Project.class, queryParams);
+        connectionService.getList(null, Constants.PROJECTS_API_PATH, Project.class, queryParams);
+        // Then
+        Mockito.verify(this.mockClient, Mockito.times(1)).target(Constants.GITLAB_API_URL);
+        Mockito.verify(this.mockWebTarget, Mockito.times(2)).queryParam("scope", "owned", "starred");
+        ArgumentCaptor<MultivaluedMap> headers = ArgumentCaptor.forClass(MultivaluedMap.class);
+        Mockito.verify(this.mockBuilder, Mockito.times(2)).headers(headers.capture());
+        Assert.assertSame(headers.getAllValues().get(0), headers.getAllValues().get(1));
+    }
+
+    @Test
+    public void testGetObjectsReportsFailuresPerItem() {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Project mockProject = new Project();
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(mockProject);
+        WebTarget missingTarget = Mockito.mock(WebTarget.class);
+        Invocation.Builder missingBuilder = Mockito.mock(Invocation.Builder.class);
+        AsyncInvoker missingInvoker = Mockito.mock(AsyncInvoker.class);
+        Response missingResponse = Mockito.mock(Response.class);
+        Mockito.when(this.mockWebTarget.path(Constants.PROJECTS_API_PATH + "/404")).thenReturn(missingTarget);
+        Mockito.when(missingTarget.request()).thenReturn(missingBuilder);
+        Mockito.when(missingBuilder.accept(Matchers.<String>anyVararg())).thenReturn(missingBuilder);
+        Mockito.when(missingBuilder.headers(Matchers.any())).thenReturn(missingBuilder);
+        Mockito.when(missingBuilder.async()).thenReturn(missingInvoker);
+        Mockito.when(missingResponse.getStatus()).thenReturn(Response.Status.NOT_FOUND.getStatusCode());
+        Mockito.when(missingInvoker.get(Matchers.<InvocationCallback<Response>>any())).thenAnswer(invocation -> {
+            ((InvocationCallback<Response>) invocation.getArguments()[0]).completed(missingResponse);
+            return null;
+        });
+        // When
+        List<ItemResult<Project>> results = connectionService.getObjects(null,
+                Constants.PROJECTS_API_PATH + "/{id}", Arrays.asList(1L, 404L, "group/api"), Project.class, null, 2);
+        // Then
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(1L, results.get(0).getId());
+        Assert.assertSame(mockProject, results.get(0).getValue());
+        Assert.assertTrue(results.get(1).isNotFound());
+        Assert.assertNull(results.get(1).getValue());
+        Assert.assertTrue(results.get(2).isSuccess());
+        Mockito.verify(this.mockWebTarget).path(Constants.PROJECTS_API_PATH + "/group%2Fapi");
+    }
+
+    @Test
+    public void testGetObjectsIsAbortedWhenInterrupted() {
+        // Given
+        connectionService.setPrivateToken("Valid-private-token");
+        // gitlab never answers
+        Mockito.doReturn(null).when(mockAsyncInvoker).get(Matchers.<InvocationCallback<Response>>any());
+        Thread.currentThread().interrupt();
+        try {
+            // When
+            connectionService.getObjects(null, Constants.PROJECTS_API_PATH + "/{id}", Arrays.asList(1L, 2L, 3L),
+                    Project.class, null, 3);
+            Assert.fail("Expected the batch to be aborted");
+        } catch (ProcessingException e) {
+            // Then
+            Assert.assertTrue(e.getCause() instanceof InterruptedException);
+            Assert.assertTrue(Thread.interrupted());
+        }
+    }
+
+    /**
+     * Runs the call on another thread and interrupts it while it waits
+     *
+     * @return the failure of the call, which should have ended promptly with the interrupt flag set
+     */
+    private Throwable interrupted(ConnectionService.ServiceCall<?> call) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            try {
+                call.call();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+            stillInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        Thread.sleep(200);
+        caller.interrupt();
+        caller.join(1000);
+        Assert.assertFalse(caller.isAlive());
+        Assert.assertTrue(stillInterrupted.get());
+        Assert.assertTrue(String.valueOf(failure.get()), failure.get() instanceof ProcessingException);
+        return failure.get();
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.Project;
+import in.rishikeshdarandale.gitlab.model.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * GitlabClientRegistry test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class GitlabClientRegistryTest {
+    private static final String API_URL = "https://gitlab.example.com/api/v3";
+
+    @Mock private Client mockClient;
+    @Mock private Response mockResponse;
+    @Mock private Invocation.Builder mockBuilder;
+    @Mock private WebTarget mockWebTarget;
+    private GitlabClientRegistry registry;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(mockBuilder.accept(Matchers.<String>anyVararg())).thenReturn(mockBuilder);
+        Mockito.when(mockBuilder.headers(Matchers.any())).thenReturn(mockBuilder);
+        Mockito.when(mockBuilder.get()).thenReturn(this.mockResponse);
+        Mockito.when(mockBuilder.post(Matchers.any())).thenReturn(this.mockResponse);
+        Mockito.when(mockWebTarget.path(Matchers.anyString())).thenReturn(mockWebTarget);
+        Mockito.when(mockWebTarget.request()).thenReturn(mockBuilder);
+        Mockito.when(this.mockClient.target(Matchers.anyString())).thenReturn(mockWebTarget);
+
+        ConnectionService connectionService = ConnectionService.builder().idleTimeout(0).build();
+        connectionService.setClient(mockClient);
+        registry = new GitlabClientRegistry(connectionService);
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    public void testClientsArePerHostAndToken() {
+        // When
+        GitlabClient first = registry.get(API_URL, "first-token");
+        GitlabClient second = registry.get(API_URL, "second-token");
+        // Then
+        Assert.assertSame(first, registry.get(API_URL, "first-token"));
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(first, registry.get("https://other.example.com/api/v3", "first-token"));
+        Assert.assertEquals(3, registry.size());
+        registry.remove(API_URL, "first-token");
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEveryClientSendsItsOwnToken() throws AuthenticationException {
+        // Given
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(Project.class)).thenReturn(new Project());
+        // When
+        registry.get(API_URL, "first-token").getObject(null, Constants.PROJECTS_API_PATH + "/1", Project.class,
+                null);
+        registry.get(API_URL, "second-token").getObject("root", Constants.PROJECTS_API_PATH + "/1", Project.class,
+                null);
+        // Then
+        ArgumentCaptor<MultivaluedMap> headers = ArgumentCaptor.forClass(MultivaluedMap.class);
+        Mockito.verify(this.mockBuilder, Mockito.times(2)).headers(headers.capture());
+        Assert.assertEquals("first-token", headers.getAllValues().get(0).getFirst(Constants.PRIVATE_TOKEN_HEADER));
+        Assert.assertEquals("second-token", headers.getAllValues().get(1).getFirst(Constants.PRIVATE_TOKEN_HEADER));
+        Assert.assertEquals("root", headers.getAllValues().get(1).getFirst(Constants.SUDO_HEADER));
+        Assert.assertNull(registry.getConnectionService().getPrivateToken());
+    }
+
+    @Test
+    public void testLoginRegistersClient() throws AuthenticationException {
+        // Given
+        Session session = Mockito.mock(Session.class);
+        Mockito.when(session.getPrivateToken()).thenReturn("session-token");
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(Response.Status.CREATED.getStatusCode());
+        Mockito.when(this.mockResponse.readEntity(Session.class)).thenReturn(session);
+        // When
+        GitlabClient client = registry.login(API_URL, "user", "password");
+        // Then
+        Assert.assertEquals("session-token", client.getPrivateToken());
+        Assert.assertSame(client, registry.get(API_URL, "session-token"));
+        Assert.assertNull(registry.getConnectionService().getPrivateToken());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * JsonProjection test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class JsonProjectionTest {
+    private static final byte[] PROJECTS = ("[{\"id\":1,\"name\":\"api\",\"path_with_namespace\":\"backend/api\","
+            + "\"description\":\"Api\",\"created_at\":\"2016-06-20T10:00:00.000Z\",\"archived\":false,"
+            + "\"namespace\":{\"id\":7,\"name\":\"backend\"},\"tag_list\":[\"java\"]},"
+            + "{\"id\":2,\"name\":\"web\",\"path_with_namespace\":\"frontend/web\",\"unknown\":null}]")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testOnlyProjectedFieldsAreBound() throws IOException {
+        // Given
+        JsonProjection<Project> projection = JsonProjection.of(Project.class, "id", "path_with_namespace");
+        // When
+        List<Project> projects = projection.readList(PROJECTS);
+        // Then
+        Assert.assertEquals(2, projects.size());
+        Assert.assertEquals(Long.valueOf(1), projects.get(0).getId());
+        Assert.assertEquals("backend/api", projects.get(0).getPathWithNamespace());
+        Assert.assertNull(projects.get(0).getName());
+        Assert.assertNull(projects.get(0).getDescription());
+        Assert.assertNull(projects.get(0).getCreatedAt());
+        Assert.assertEquals("frontend/web", projects.get(1).getPathWithNamespace());
+    }
+
+    @Test
+    public void testSharedMapperBindsAllFields() throws IOException {
+        // When
+        List<Project> projects = JsonSupport.readList(PROJECTS, Project.class);
+        // Then
+        Assert.assertEquals("api", projects.get(0).getName());
+        Assert.assertEquals("Api", projects.get(0).getDescription());
+        Assert.assertNotNull(projects.get(0).getCreatedAt());
+        Assert.assertEquals(Boolean.FALSE, projects.get(0).getArchived());
+        Assert.assertSame(JsonSupport.MAPPER, new ObjectMapperProvider().getContext(Project.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProjectionNeedsFields() {
+        // When
+        JsonProjection.of(Project.class);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaginatedPublisher test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class PaginatedPublisherTest {
+    private static final int PAGES = 5;
+    private static final int PER_PAGE = 10;
+
+    private StubGitlabServer server;
+    private ConnectionService connectionService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubGitlabServer().handle(Constants.PROJECTS_API_PATH, (exchange, apiPath) -> {
+            String query = exchange.getRequestURI().getQuery();
+            int page = Integer.parseInt(query.substring(query.indexOf("page=") + 5));
+            StringBuilder body = new StringBuilder("[");
+            for(int i = 1; i <= PER_PAGE; i++) {
+                body.append(i > 1 ? "," : "").append("{\"id\":").append((page - 1) * PER_PAGE + i).append('}');
+            }
+            if(page < PAGES) {
+                exchange.getResponseHeaders().set(Constants.X_NEXT_PAGE, String.valueOf(page + 1));
+            }
+            StubGitlabServer.sendJson(exchange, 200, body.append(']').toString());
+        });
+        connectionService = StubGitlabServer.connectionService().build();
+        connectionService.setPrivateToken(StubGitlabServer.PRIVATE_TOKEN);
+    }
+
+    @After
+    public void tearDown() {
+        connectionService.close();
+        server.close();
+    }
+
+    @Test
+    public void testPagesAreFetchedOnDemand() throws InterruptedException {
+        // Given
+        TestSubscriber subscriber = subscribe(0);
+        Thread.sleep(100);
+        Assert.assertEquals(0, server.getRequests().size());
+        // When
+        subscriber.subscription.request(5);
+        subscriber.await(5);
+        Thread.sleep(100);
+        // Then
+        Assert.assertEquals(1, server.getRequests().size());
+        // When
+        subscriber.subscription.request(10);
+        subscriber.await(15);
+        Thread.sleep(100);
+        // Then
+        Assert.assertEquals(2, server.getRequests().size());
+        Assert.assertEquals(1, subscriber.completed.getCount());
+    }
+
+    @Test
+    public void testAllItemsArePublished() throws InterruptedException {
+        // Given
+        TestSubscriber subscriber = subscribe(2);
+        // When
+        subscriber.subscription.request(Long.MAX_VALUE);
+        // Then
+        Assert.assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertNull(subscriber.failure);
+        List<Project> projects = new ArrayList<>();
+        subscriber.items.drainTo(projects);
+        Assert.assertEquals(PAGES * PER_PAGE, projects.size());
+        for(int i = 0; i < projects.size(); i++) {
+            Assert.assertEquals(Long.valueOf(i + 1), projects.get(i).getId());
+        }
+        Assert.assertEquals(PAGES, server.getRequests().size());
+    }
+
+    @Test
+    public void testCancelStopsTheListing() throws InterruptedException {
+        // Given
+        TestSubscriber subscriber = subscribe(1);
+        subscriber.subscription.request(1);
+        subscriber.await(1);
+        // When
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(100);
+        Thread.sleep(100);
+        // Then
+        Assert.assertEquals(1, subscriber.items.size());
+        Assert.assertTrue(server.getRequests().size() <= 2);
+        Assert.assertEquals(1, subscriber.completed.getCount());
+    }
+
+    @Test
+    public void testNonPositiveRequestIsSignalled() throws InterruptedException {
+        // Given
+        TestSubscriber subscriber = subscribe(1);
+        // When
+        subscriber.subscription.request(0);
+        // Then
+        Assert.assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(subscriber.failure instanceof IllegalArgumentException);
+        Assert.assertEquals(0, server.getRequests().size());
+    }
+
+    private TestSubscriber subscribe(int pagesAhead) {
+        TestSubscriber subscriber = new TestSubscriber();
+        connectionService.getPublisher(null, server.getApiUrl(), Constants.PROJECTS_API_PATH, Project.class, null,
+                pagesAhead).subscribe(subscriber);
+        Assert.assertNotNull(subscriber.subscription);
+        return subscriber;
+    }
+
+    private static class TestSubscriber implements Subscriber<Project> {
+        private final BlockingQueue<Project> items = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable failure;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Project project) {
+            items.add(project);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        private void await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(count, items.size());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * PersistentResponseStore test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class PersistentResponseStoreTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResponsesSurviveReopen() throws IOException {
+        // Given
+        Path directory = folder.getRoot().toPath();
+        PersistentResponseStore store = new PersistentResponseStore(directory, 4096, 4);
+        store.put("projects?#", response("[{\"id\":1}]", "\"v1\""));
+        store.put("groups?#", response("[]", "\"v2\""));
+        store.put("projects?#", response("[{\"id\":2}]", "\"v3\""));
+        store.close();
+        // When
+        store = new PersistentResponseStore(directory, 4096, 4);
+        CachedResponse projects = store.get("projects?#");
+        // Then
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals("\"v3\"", projects.getETag());
+        Assert.assertEquals("45", projects.getHeader(Constants.X_TOTAL));
+        Assert.assertEquals("[{\"id\":2}]", new String(projects.getBody(), StandardCharsets.UTF_8));
+        Assert.assertNull(projects.getEntity());
+        Assert.assertNull(store.get("users?#"));
+        store.close();
+    }
+
+    @Test
+    public void testOldestSegmentIsDropped() throws IOException {
+        // Given
+        PersistentResponseStore store = new PersistentResponseStore(folder.getRoot().toPath(), 256, 2);
+        // When
+        for(int i = 0; i < 10; i++) {
+            store.put("projects/" + i, response("{\"id\":" + i + "}", "\"v" + i + "\""));
+        }
+        // Then
+        Assert.assertNull(store.get("projects/0"));
+        Assert.assertNotNull(store.get("projects/9"));
+        Assert.assertTrue(store.size() < 10);
+        Assert.assertEquals(2, folder.getRoot().list().length);
+        store.clear();
+        Assert.assertEquals(0, store.size());
+        store.close();
+    }
+
+    @Test
+    public void testCorruptedSegmentIsTruncatedOnReopen() throws IOException {
+        // Given
+        Path directory = folder.getRoot().toPath();
+        PersistentResponseStore store = new PersistentResponseStore(directory, 4096, 4);
+        store.put("projects/1", response("{\"id\":1}", "\"v1\""));
+        store.put("projects/2", response("{\"id\":2}", "\"v2\""));
+        store.put("projects/3", response("{\"id\":3}", "\"v3\""));
+        store.close();
+        Path segment = directory.resolve(folder.getRoot().list()[0]);
+        // the key of the second record claims to be far longer than the record
+        corrupt(segment, 8 + readInt(segment, 4) + 8, Integer.MAX_VALUE);
+        // When
+        store = new PersistentResponseStore(directory, 4096, 4);
+        // Then
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals("\"v1\"", store.get("projects/1").getETag());
+        Assert.assertNull(store.get("projects/2"));
+        Assert.assertNull(store.get("projects/3"));
+        // When
+        store.put("projects/4", response("{\"id\":4}", "\"v4\""));
+        store.close();
+        store = new PersistentResponseStore(directory, 4096, 4);
+        // Then
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals("\"v4\"", store.get("projects/4").getETag());
+        store.close();
+    }
+
+    @Test
+    public void testCorruptedRecordIsDroppedOnGet() throws IOException {
+        // Given
+        Path directory = folder.getRoot().toPath();
+        PersistentResponseStore store = new PersistentResponseStore(directory, 4096, 4);
+        store.put("projects/1", response("{\"id\":1}", "\"v1\""));
+        Path segment = directory.resolve(folder.getRoot().list()[0]);
+        // the header count of the record is negative
+        int headerCount = 8 + 4 + "projects/1".length() + 4 + "\"v1\"".length() + 4;
+        corrupt(segment, headerCount, -5);
+        // When
+        CachedResponse response = store.get("projects/1");
+        // Then
+        Assert.assertNull(response);
+        Assert.assertEquals(0, store.size());
+        store.close();
+    }
+
+    private int readInt(Path file, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer value = ByteBuffer.allocate(4);
+            channel.read(value, position);
+            return value.getInt(0);
+        }
+    }
+
+    private void corrupt(Path file, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(4);
+            bytes.putInt(0, value);
+            channel.write(bytes, position);
+        }
+    }
+
+    private CachedResponse response(String body, String eTag) {
+        return new CachedResponse(null, body.getBytes(StandardCharsets.UTF_8), eTag, null,
+                Collections.singletonMap(Constants.X_TOTAL, "45"));
+    }
+}
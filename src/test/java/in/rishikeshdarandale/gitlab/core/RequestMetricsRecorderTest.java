@@ -0,0 +1,187 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import in.rishikeshdarandale.gitlab.model.PaginatedList;
+import in.rishikeshdarandale.gitlab.model.Project;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * RequestMetricsRecorder test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class RequestMetricsRecorderTest {
+    private static final byte[] PROJECTS = projects(200);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+    private StubGitlabServer server;
+    private ConnectionService connectionService;
+    private RequestMetricsRecorder recorder;
+    private String apiUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubGitlabServer()
+                .handle(Constants.PROJECTS_API_PATH, (exchange, apiPath) -> send(exchange, 200, PROJECTS))
+                .fallback((exchange, apiPath) -> send(exchange, 401,
+                        "{\"message\":\"401 Unauthorized\"}".getBytes(StandardCharsets.UTF_8)));
+        apiUrl = server.getApiUrl();
+        recorder = new RequestMetricsRecorder();
+        connectionService = StubGitlabServer.connectionService().build();
+        connectionService.setPrivateToken(StubGitlabServer.PRIVATE_TOKEN);
+        connectionService.setRequestListener(recorder);
+    }
+
+    @After
+    public void tearDown() {
+        connectionService.close();
+        server.close();
+    }
+
+    @Test
+    public void testListRequestIsRecorded() throws AuthenticationException {
+        // When
+        PaginatedList<Project> page = connectionService.getList(null, apiUrl, Constants.PROJECTS_API_PATH,
+                Project.class, null);
+        // Then
+        Assert.assertEquals(200, page.gettList().size());
+        RequestMetricsRecorder.EndpointMetrics metrics = recorder.getEndpoint(Constants.PROJECTS_API_PATH);
+        Assert.assertEquals(1, metrics.getRequestCount());
+        Assert.assertEquals(0, metrics.getInFlightCount());
+        Assert.assertEquals(1, metrics.getPageCount());
+        Assert.assertEquals(1, metrics.getStatusCount(200));
+        Assert.assertEquals(PROJECTS.length, metrics.getBytesRead());
+        Assert.assertEquals(PROJECTS.length, metrics.getBytesDecoded());
+        Assert.assertEquals(1, metrics.getLatency().getTotalCount());
+        Assert.assertEquals(1, metrics.getTimeToFirstByte().getTotalCount());
+        Assert.assertEquals(1, metrics.getDeserialization().getTotalCount());
+        Assert.assertTrue(metrics.getTimeToFirstByte().getMaxValue() <= metrics.getLatency().getMaxValue());
+    }
+
+    @Test
+    public void testCompressedResponseIsDecoded() throws AuthenticationException {
+        // Given
+        ConnectionService compressing = StubGitlabServer.connectionService().compression(true).build();
+        compressing.setPrivateToken(StubGitlabServer.PRIVATE_TOKEN);
+        compressing.setRequestListener(recorder);
+        try {
+            // When
+            PaginatedList<Project> page = compressing.getList(null, apiUrl, Constants.PROJECTS_API_PATH,
+                    Project.class, null);
+            // Then
+            Assert.assertEquals(200, page.gettList().size());
+            RequestMetricsRecorder.EndpointMetrics metrics = recorder.getEndpoint(Constants.PROJECTS_API_PATH);
+            Assert.assertEquals(PROJECTS.length, metrics.getBytesDecoded());
+            Assert.assertTrue(metrics.getBytesRead() > 0);
+            Assert.assertTrue(metrics.getBytesRead() * 4 < metrics.getBytesDecoded());
+        } finally {
+            compressing.close();
+        }
+    }
+
+    @Test
+    public void testPersistentlyCachedResponseIsCountedOnce() throws Exception {
+        // Given
+        byte[] project = "{\"id\":7,\"name\":\"project\"}".getBytes(StandardCharsets.UTF_8);
+        server.handle(Constants.PROJECTS_API_PATH + "/7", (exchange, apiPath) -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            StubGitlabServer.send(exchange, 200, project);
+        });
+        PersistentResponseStore store = new PersistentResponseStore(folder.getRoot().toPath(), 4096, 1);
+        connectionService.setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES, store));
+        try {
+            // When
+            Project fetched = connectionService.getObject(null, apiUrl, Constants.PROJECTS_API_PATH + "/7",
+                    Project.class, null);
+            // Then
+            Assert.assertEquals(Long.valueOf(7), fetched.getId());
+            Assert.assertEquals(1, store.size());
+            RequestMetricsRecorder.EndpointMetrics metrics = recorder.getEndpoint("projects/:id");
+            Assert.assertEquals(project.length, metrics.getBytesRead());
+            Assert.assertEquals(project.length, metrics.getBytesDecoded());
+            Assert.assertEquals(1, metrics.getDeserialization().getTotalCount());
+        } finally {
+            connectionService.setResponseCache(null);
+            store.close();
+        }
+    }
+
+    @Test
+    public void testFailedAsyncRequestIsRecorded() throws Exception {
+        // When
+        try {
+            connectionService.getObjectAsync(null, apiUrl, Constants.PROJECTS_API_PATH + "/12", Project.class, null)
+                    .get(5, TimeUnit.SECONDS);
+            Assert.fail("Unauthorized request should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof AuthenticationException);
+        }
+        // Then
+        RequestMetricsRecorder.EndpointMetrics metrics = recorder.getEndpoint("projects/:id");
+        Assert.assertEquals(1, metrics.getRequestCount());
+        Assert.assertEquals(1, metrics.getFailureCount());
+        Assert.assertEquals(1, metrics.getStatusCount(401));
+        Assert.assertEquals(0, metrics.getPageCount());
+    }
+
+    @Test
+    public void testNumericSegmentsAreNormalized() {
+        Assert.assertEquals("projects", RequestMetricsRecorder.normalize("projects"));
+        Assert.assertEquals("projects/:id/members/:id", RequestMetricsRecorder.normalize("/projects/12/members/345"));
+        Assert.assertEquals("groups/my-group/projects", RequestMetricsRecorder.normalize("groups/my-group/projects"));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set(Constants.X_TOTAL_PAGES, "1");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if(acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            StubGitlabServer.send(exchange, status, body);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] projects(int count) {
+        StringBuilder projects = new StringBuilder("[");
+        for(int id = 1; id <= count; id++) {
+            projects.append(id == 1 ? "" : ",").append("{\"id\":").append(id)
+                    .append(",\"name\":\"project\",\"default_branch\":\"master\"}");
+        }
+        return projects.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RequestRateLimiter test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class RequestRateLimiterTest {
+    private static final String API_URL = "https://gitlab.example.com/api/v3";
+
+    @Test
+    public void testRateFollowsRateLimitHeaders() {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(50);
+        long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 10;
+        Response response = response(Response.Status.OK.getStatusCode());
+        Mockito.when(response.getHeaderString(Constants.RATE_LIMIT_REMAINING)).thenReturn("20");
+        Mockito.when(response.getHeaderString(Constants.RATE_LIMIT_RESET)).thenReturn(String.valueOf(reset));
+        // When
+        boolean retry = limiter.onResponse(API_URL, "token", response);
+        // Then
+        Assert.assertFalse(retry);
+        // the window is 9 seconds when a second boundary is crossed meanwhile
+        Assert.assertTrue(limiter.getRate(API_URL, "token") <= 20.0 / 9);
+        Assert.assertTrue(limiter.getRate(API_URL, "token") >= 1.8);
+    }
+
+    @Test
+    public void testRateIsHalvedAndRecoversAfterThrottling() {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(10);
+        Response throttled = response(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(throttled.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("0");
+        // When
+        boolean retry = limiter.onResponse(API_URL, "token", throttled);
+        // Then
+        Assert.assertTrue(retry);
+        Assert.assertEquals(5.0, limiter.getRate(API_URL, "token"), 0.001);
+        limiter.onResponse(API_URL, "token", response(Response.Status.OK.getStatusCode()));
+        Assert.assertEquals(5.5, limiter.getRate(API_URL, "token"), 0.001);
+    }
+
+    @Test
+    public void testBucketsPerToken() {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(10, true, 1);
+        Response throttled = response(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(throttled.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("0");
+        // When
+        limiter.onResponse(API_URL, "first", throttled);
+        // Then
+        Assert.assertEquals(5.0, limiter.getRate(API_URL, "first"), 0.001);
+        Assert.assertEquals(10.0, limiter.getRate(API_URL, "second"), 0.001);
+    }
+
+    @Test
+    public void testTryAcquireDoesNotWaitForThePause() {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(10);
+        Response throttled = response(Constants.HTTP_TOO_MANY_REQUESTS);
+        Mockito.when(throttled.getHeaderString(HttpHeaders.RETRY_AFTER)).thenReturn("2");
+        limiter.onResponse(API_URL, "token", throttled);
+        long startedAt = System.nanoTime();
+        // When
+        long delay = limiter.tryAcquire(API_URL, "token");
+        // Then
+        Assert.assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(delay > TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(delay <= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    private Response response(int status) {
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+}
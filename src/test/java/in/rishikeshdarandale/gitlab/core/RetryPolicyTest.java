@@ -0,0 +1,87 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.ws.rs.ProcessingException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RetryPolicy test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testBackoffIsJitteredAndBounded() {
+        // Given
+        RetryPolicy policy = RetryPolicy.builder().backoff(100, 1000).build();
+        // When
+        long first = policy.getBackoff(1);
+        long third = policy.getBackoff(3);
+        long tenth = policy.getBackoff(10);
+        // Then
+        Assert.assertTrue(first >= 50 && first <= 100);
+        Assert.assertTrue(third >= 200 && third <= 400);
+        Assert.assertTrue(tenth >= 500 && tenth <= 1000);
+    }
+
+    @Test
+    public void testHedgeDelayFollowsObservedLatencies() {
+        // Given
+        RetryPolicy policy = RetryPolicy.builder().hedge(250, 0.9).build();
+        Assert.assertEquals(250, policy.getHedgeDelay());
+        // When
+        for(int i = 1; i <= 100; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        // Then
+        Assert.assertEquals(90, policy.getHedgeDelay());
+    }
+
+    @Test
+    public void testOnlyServerErrorsAreRetryable() {
+        // Given
+        RetryPolicy policy = RetryPolicy.builder().build();
+        // Then
+        Assert.assertTrue(policy.isRetryable(503));
+        Assert.assertFalse(policy.isRetryable(404));
+        Assert.assertFalse(policy.isRetryable(Constants.HTTP_TOO_MANY_REQUESTS));
+    }
+
+    @Test
+    public void testPoolTimeoutsAreNotRetryable() {
+        // Given
+        RetryPolicy policy = RetryPolicy.builder().build();
+        // Then
+        Assert.assertTrue(policy.isRetryable(new ProcessingException(new SocketTimeoutException())));
+        Assert.assertFalse(policy.isRetryable(new ProcessingException(
+                new ConnectionPoolTimeoutException("Timeout waiting for connection from pool"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPolicy() {
+        RetryPolicy.builder().maxAttempts(0).build();
+    }
+}
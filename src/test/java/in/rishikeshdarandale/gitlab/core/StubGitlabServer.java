@@ -0,0 +1,139 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local http server answering like gitlab, shared by the tests sending real requests.
+ *
+ * Responses are registered by api path, for example <code>groups/1/projects</code>, and the other paths
+ * are answered by the fallback, a <code>404</code> unless replaced. Every request received is recorded.
+ *
+ * @author Rishikesh Darandale
+ */
+public class StubGitlabServer implements AutoCloseable {
+    public static final String API_PATH = "/api/v3";
+    public static final String API_V4_PATH = "/api/v4";
+    public static final String PRIVATE_TOKEN = "Valid-private-token";
+
+    private final String apiPath;
+    private final HttpServer server;
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+    private volatile Handler fallback = (exchange, apiPath) -> sendJson(exchange, 404,
+            "{\"message\":\"404 Not Found\"}");
+
+    public StubGitlabServer() throws IOException {
+        this(API_PATH);
+    }
+
+    /**
+     * @param apiPath path of the api, for example {@link #API_V4_PATH}
+     */
+    public StubGitlabServer(String apiPath) throws IOException {
+        this.apiPath = apiPath;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(apiPath, this::handle);
+        server.start();
+    }
+
+    /**
+     * @return a builder of connection services which do not evict connections in the background
+     */
+    public static ConnectionService.Builder connectionService() {
+        return ConnectionService.builder().idleTimeout(0);
+    }
+
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + apiPath;
+    }
+
+    /**
+     * Answers the api path with a <code>200</code> and the json body
+     */
+    public StubGitlabServer respond(String apiPath, String json) {
+        return handle(apiPath, (exchange, path) -> sendJson(exchange, 200, json));
+    }
+
+    public StubGitlabServer handle(String apiPath, Handler handler) {
+        handlers.put(apiPath, handler);
+        return this;
+    }
+
+    /**
+     * Answers the api paths without a handler of their own
+     */
+    public StubGitlabServer fallback(Handler handler) {
+        this.fallback = handler;
+        return this;
+    }
+
+    /**
+     * @return the uris of the requests received so far, in their order of arrival
+     */
+    public List<URI> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    public static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.add(exchange.getRequestURI());
+            String path = exchange.getRequestURI().getPath();
+            String relativePath = path.length() > apiPath.length() ? path.substring(apiPath.length() + 1) : "";
+            handlers.getOrDefault(relativePath, fallback).handle(exchange, relativePath);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpExchange exchange, String apiPath) throws IOException;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * CatalogSnapshot test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class CatalogSnapshotTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotIsWrittenAndMapped() throws IOException {
+        // Given
+        StringPool strings = new StringPool();
+        GroupTable groups = new GroupTable(strings);
+        ProjectTable projects = new ProjectTable(strings);
+        Group group = new Group();
+        group.setId(7L);
+        group.setName("B\u00e4ckend");
+        group.setFullPath("backend");
+        groups.put(group);
+        for(long id = 1; id <= 1000; id++) {
+            Project project = new Project();
+            project.setId(id);
+            project.setName("project-" + id);
+            project.setPathWithNamespace("backend/project-" + id);
+            project.setArchived(id % 2 == 0);
+            project.setLastActivityAt(new Date(id * 1000));
+            projects.put(project);
+        }
+        Path file = folder.getRoot().toPath().resolve("catalog.snapshot");
+        // When
+        CatalogSnapshot.write(file, groups, projects);
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        // Then
+        Assert.assertEquals(1, snapshot.getGroups().size());
+        Assert.assertEquals("B\u00e4ckend", snapshot.getGroups().get(7L).getName());
+        Assert.assertNull(snapshot.getGroups().get(7L).getParentId());
+        Assert.assertEquals(1000, snapshot.getProjects().size());
+        Project project = snapshot.getProjects().get(500L);
+        Assert.assertEquals(projects.get(500L), project);
+        Assert.assertEquals(Boolean.TRUE, project.getArchived());
+        Assert.assertEquals(new Date(500000L), project.getLastActivityAt());
+        Assert.assertNull(project.getStarCount());
+        Assert.assertNull(project.getDescription());
+        Assert.assertNull(snapshot.getProjects().get(1001L));
+        int count = 0;
+        for(Project each : snapshot.getProjects()) {
+            Assert.assertEquals(projects.getRow(count++).toString(), each.toString());
+        }
+        Assert.assertEquals(1000, count);
+        Assert.assertFalse(Files.exists(file.resolveSibling("catalog.snapshot.tmp")));
+    }
+
+    @Test
+    public void testSnapshotCanBeReloadedIntoTables() throws IOException {
+        // Given
+        ProjectTable projects = new ProjectTable();
+        Project project = new Project();
+        project.setId(1L);
+        project.setName("api");
+        projects.put(project);
+        Path file = folder.getRoot().toPath().resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, new GroupTable(projects.getStrings()), projects);
+        // When
+        ProjectTable reloaded = new ProjectTable();
+        reloaded.putAll(CatalogSnapshot.open(file).getProjects());
+        // Then
+        Assert.assertEquals(project, reloaded.get(1L));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLaterVersionIsRejected() throws IOException {
+        // Given
+        StringPool strings = new StringPool();
+        Path file = folder.getRoot().toPath().resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, new GroupTable(strings), new ProjectTable(strings));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(4);
+            raf.writeShort(CatalogSnapshot.VERSION + 1);
+        }
+        // When
+        CatalogSnapshot.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherFileIsRejected() throws IOException {
+        // Given
+        Path file = folder.newFile("catalog.json").toPath();
+        Files.write(file, "[{\"id\": 1, \"name\": \"api\"}]".getBytes("UTF-8"));
+        // When
+        CatalogSnapshot.open(file);
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        // Given
+        ProjectTable projects = projects(100);
+        Path file = folder.getRoot().toPath().resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, new GroupTable(projects.getStrings()), projects);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = folder.getRoot().toPath().resolve("truncated.snapshot");
+        // the header and the footer are kept, so the magic still matches
+        byte[] kept = new byte[64];
+        System.arraycopy(bytes, 0, kept, 0, 52);
+        System.arraycopy(bytes, bytes.length - 12, kept, 52, 12);
+        Files.write(truncated, kept);
+        Path corrupt = folder.getRoot().toPath().resolve("corrupt.snapshot");
+        Files.write(corrupt, bytes);
+        try (RandomAccessFile raf = new RandomAccessFile(corrupt.toFile(), "rw")) {
+            // the length of the first block
+            long contents = bytes.length - 12;
+            raf.seek(contents);
+            long offset = raf.readLong();
+            raf.seek(offset + 4 + 12);
+            raf.writeLong(Integer.MAX_VALUE);
+        }
+        // When
+        for(Path each : new Path[] {truncated, corrupt}) {
+            try {
+                CatalogSnapshot.open(each);
+                Assert.fail("Expected " + each + " to be rejected");
+            } catch (IOException e) {
+                // Then
+                Assert.assertTrue(e.getMessage().startsWith("Corrupt"));
+            }
+        }
+    }
+
+    @Test
+    public void testTemporaryFileIsDeletedOnFailure() throws IOException {
+        // Given
+        ProjectTable projects = projects(10);
+        Path file = folder.newFolder("catalog.snapshot").toPath();
+        Files.createFile(file.resolve("other"));
+        // When
+        try {
+            CatalogSnapshot.write(file, new GroupTable(projects.getStrings()), projects);
+            Assert.fail("Expected the snapshot not to replace a directory");
+        } catch (IOException e) {
+            // Then
+            Assert.assertFalse(Files.exists(file.resolveSibling("catalog.snapshot.tmp")));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTablesShouldShareStrings() throws IOException {
+        // When
+        CatalogSnapshot.write(folder.getRoot().toPath().resolve("catalog.snapshot"), new GroupTable(),
+                new ProjectTable());
+    }
+
+    private ProjectTable projects(int count) {
+        ProjectTable projects = new ProjectTable();
+        for(long id = 1; id <= count; id++) {
+            Project project = new Project();
+            project.setId(id);
+            project.setName("project-" + id);
+            project.setPathWithNamespace("backend/project-" + id);
+            projects.put(project);
+        }
+        return projects;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * GroupTable test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class GroupTableTest {
+
+    @Test
+    public void testGroupsAreStoredAndRead() {
+        // Given
+        GroupTable table = new GroupTable();
+        Group group = group(2L, 1L, "parent/child");
+        group.setDescription("The child");
+        group.setWebUrl("https://gitlab.example.com/groups/parent/child");
+        // When
+        table.put(group);
+        // Then
+        Group stored = table.get(2L);
+        Assert.assertEquals(group, stored);
+        Assert.assertEquals("parent/child", stored.getFullPath());
+        Assert.assertEquals(Long.valueOf(1L), stored.getParentId());
+        Assert.assertEquals("The child", stored.getDescription());
+        Assert.assertEquals(group.toString(), stored.toString());
+    }
+
+    @Test
+    public void testStringsAreSharedWithProjects() {
+        // Given
+        StringPool strings = new StringPool();
+        GroupTable groups = new GroupTable(strings);
+        ProjectTable projects = new ProjectTable(strings);
+        groups.put(group(1L, null, "parent"));
+        // When
+        for(long id = 2; id <= 101; id++) {
+            groups.put(group(id, 1L, "parent/child-" + id));
+            Project project = new Project();
+            project.setId(id);
+            project.setPathWithNamespace("parent/project-" + id);
+            project.setVisibility("private");
+            projects.put(project);
+        }
+        // Then
+        Assert.assertEquals(101, groups.size());
+        // the namespace of the subgroups and projects, and the visibility
+        Assert.assertEquals(2, strings.size());
+        Assert.assertEquals("parent/child-50", groups.get(50L).getFullPath());
+        Assert.assertEquals("parent", groups.get(1L).getFullPath());
+    }
+
+    @Test
+    public void testRemovedGroupReleasesItsStrings() {
+        // Given
+        GroupTable table = new GroupTable();
+        table.put(group(1L, null, "parent"));
+        table.put(group(2L, 1L, "parent/child"));
+        table.put(group(3L, null, "other"));
+        // When
+        table.remove(2L);
+        // Then
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals("other", table.getRow(1).getFullPath());
+        // only the visibility is left
+        Assert.assertEquals(1, table.getStrings().size());
+    }
+
+    @Test
+    public void testGroupsAreDetachedCopies() {
+        // Given
+        GroupTable table = new GroupTable();
+        table.put(group(1L, null, null));
+        Group stored = table.get(1L);
+        // When
+        stored.setFullPath("parent");
+        // Then
+        Assert.assertEquals("parent", stored.getFullPath());
+        Assert.assertNull(table.get(1L).getFullPath());
+    }
+
+    private Group group(Long id, Long parentId, String fullPath) {
+        Group group = new Group();
+        group.setId(id);
+        group.setParentId(parentId);
+        group.setFullPath(fullPath);
+        group.setPath(fullPath == null ? null : fullPath.substring(fullPath.lastIndexOf('/') + 1));
+        group.setName(group.getPath());
+        group.setVisibility("private");
+        return group;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * ProjectTable test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class ProjectTableTest {
+
+    @Test
+    public void testProjectsAreStoredAndRead() {
+        // Given
+        ProjectTable table = new ProjectTable();
+        Project project = project(42L, "api", "backend/api");
+        project.setArchived(true);
+        project.setStarCount(7);
+        project.setLastActivityAt(new Date(1000L));
+        // When
+        table.put(project);
+        // Then
+        Project stored = table.get(42L);
+        Assert.assertEquals(1, table.size());
+        Assert.assertEquals(project, stored);
+        Assert.assertEquals("backend/api", stored.getPathWithNamespace());
+        Assert.assertEquals(Boolean.TRUE, stored.getArchived());
+        Assert.assertEquals(Integer.valueOf(7), stored.getStarCount());
+        Assert.assertEquals(new Date(1000L), stored.getLastActivityAt());
+        Assert.assertEquals(project.toString(), stored.toString());
+        Assert.assertNull(table.get(43L));
+    }
+
+    @Test
+    public void testMissingValuesStayNull() {
+        // Given
+        ProjectTable table = new ProjectTable();
+        // When
+        table.put(project(1L, null, null));
+        // Then
+        Project stored = table.getRow(0);
+        Assert.assertNull(stored.getName());
+        Assert.assertNull(stored.getPathWithNamespace());
+        Assert.assertNull(stored.getArchived());
+        Assert.assertNull(stored.getForksCount());
+        Assert.assertNull(stored.getCreatedAt());
+    }
+
+    @Test
+    public void testOnlyRepeatedStringsArePooled() {
+        // Given
+        StringPool strings = new StringPool();
+        ProjectTable projects = new ProjectTable(strings);
+        // When
+        for(long id = 1; id <= 1000; id++) {
+            projects.put(project(id, "project-" + id, "group-" + id % 10 + "/project-" + id));
+        }
+        // Then
+        Assert.assertEquals(1000, projects.size());
+        // ten namespaces and the visibility
+        Assert.assertEquals(11, strings.size());
+        Assert.assertEquals("group-3/project-3", projects.get(3L).getPathWithNamespace());
+        Assert.assertEquals("private", projects.get(1000L).getVisibility());
+        // the last segment of the path with namespace is the path itself
+        Assert.assertSame(projects.getString(ProjectColumns.PATH, 0),
+                projects.getString(ProjectColumns.PATH_IN_NAMESPACE, 0));
+    }
+
+    @Test
+    public void testReplacedStringsAreReleased() {
+        // Given
+        ProjectTable table = new ProjectTable();
+        table.put(project(1L, "api", "backend/api"));
+        table.put(project(2L, "web", "frontend/web"));
+        // When
+        table.put(project(1L, "api", "platform/api"));
+        // Then
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals("platform/api", table.get(1L).getPathWithNamespace());
+        Assert.assertEquals(Long.valueOf(1L), table.getRow(0).getId());
+        Assert.assertEquals(3, table.getStrings().size());
+    }
+
+    @Test
+    public void testRemovedProjectIsReplacedByTheLastRow() {
+        // Given
+        ProjectTable table = new ProjectTable();
+        for(long id = 1; id <= 100; id++) {
+            table.put(project(id, "project-" + id, "group-" + id + "/project-" + id));
+        }
+        // When
+        boolean removed = table.remove(1L);
+        // Then
+        Assert.assertTrue(removed);
+        Assert.assertFalse(table.remove(1L));
+        Assert.assertEquals(99, table.size());
+        Assert.assertNull(table.get(1L));
+        Assert.assertEquals(Long.valueOf(100L), table.getRow(0).getId());
+        for(long id = 2; id <= 100; id++) {
+            Assert.assertEquals("group-" + id + "/project-" + id, table.get(id).getPathWithNamespace());
+        }
+        // 99 namespaces and the visibility
+        Assert.assertEquals(100, table.getStrings().size());
+        int count = 0;
+        for(Project project : table) {
+            Assert.assertNotNull(project.getId());
+            count++;
+        }
+        Assert.assertEquals(99, count);
+    }
+
+    @Test
+    public void testProjectsAreDetachedCopies() {
+        // Given
+        ProjectTable table = new ProjectTable();
+        table.put(project(1L, "api", "backend/api"));
+        // When
+        table.get(1L).setName("web");
+        // Then
+        Assert.assertEquals("api", table.get(1L).getName());
+    }
+
+    private Project project(Long id, String name, String pathWithNamespace) {
+        Project project = new Project();
+        project.setId(id);
+        project.setName(name);
+        project.setPath(name);
+        project.setPathWithNamespace(pathWithNamespace);
+        project.setVisibility("private");
+        return project;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.GitlabClientRegistry;
+import in.rishikeshdarandale.gitlab.core.StubGitlabServer;
+import in.rishikeshdarandale.gitlab.model.Group;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * GroupService test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class GroupServiceTest {
+    private StubGitlabServer server;
+    private GitlabClientRegistry registry;
+    private GroupService groupService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubGitlabServer(StubGitlabServer.API_V4_PATH)
+                .respond("groups", "[{\"id\":1,\"name\":\"Parent\",\"path\":\"parent\",\"full_path\":\"parent\"}]")
+                .respond("groups/1/subgroups", "[{\"id\":2,\"name\":\"Child\",\"path\":\"child\",\"parent_id\":1},"
+                        + "{\"id\":3,\"name\":\"Other\",\"path\":\"other\",\"parent_id\":1}]")
+                .respond("groups/2/subgroups", "[{\"id\":4,\"name\":\"Leaf\",\"path\":\"Leaf\",\"parent_id\":2}]")
+                .respond("groups/1/projects", "[{\"id\":10},{\"id\":11}]")
+                .respond("groups/2/members", "[{\"id\":5,\"username\":\"root\",\"access_level\":50}]")
+                .fallback((exchange, apiPath) -> StubGitlabServer.sendJson(exchange, 200, "[]"));
+        registry = new GitlabClientRegistry(StubGitlabServer.connectionService().build());
+        groupService = new GroupService(registry.get(server.getApiUrl(), StubGitlabServer.PRIVATE_TOKEN));
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    public void testCrawlIndexesTheWholeHierarchy() throws AuthenticationException {
+        // When
+        GroupIndex index = groupService.crawl(2);
+        // Then
+        Assert.assertSame(index, groupService.getIndex());
+        Assert.assertEquals(4, index.size());
+        Group leaf = groupService.findGroup("parent/child/leaf");
+        Assert.assertNotNull(leaf);
+        Assert.assertEquals(Long.valueOf(4), leaf.getId());
+        Assert.assertEquals("parent/child/Leaf", leaf.getFullPath());
+        Assert.assertEquals(2, index.getChildren(1).size());
+        Assert.assertEquals(2, index.getProjects(1).size());
+        Assert.assertEquals("root", index.getMembers(2).get(0).getUsername());
+        Assert.assertTrue(index.getMembers(3).isEmpty());
+    }
+
+    @Test
+    public void testCrawlOfV3ApiUsesTheParentIds() throws IOException, AuthenticationException {
+        // Given
+        try (StubGitlabServer v3Server = new StubGitlabServer()
+                .respond("groups", "[{\"id\":1,\"name\":\"Parent\",\"path\":\"parent\"},"
+                        + "{\"id\":2,\"name\":\"Child\",\"path\":\"child\",\"parent_id\":1},"
+                        + "{\"id\":3,\"name\":\"Leaf\",\"path\":\"leaf\",\"parent_id\":2},"
+                        + "{\"id\":4,\"name\":\"Shared\",\"path\":\"shared\",\"parent_id\":9}]")
+                .fallback((exchange, apiPath) -> StubGitlabServer.sendJson(exchange, 200, "[]"))) {
+            GroupService v3Service = new GroupService(registry.get(v3Server.getApiUrl(),
+                    StubGitlabServer.PRIVATE_TOKEN));
+            // When
+            GroupIndex index = v3Service.crawl(2);
+            // Then
+            Assert.assertEquals(4, index.size());
+            Assert.assertEquals(Long.valueOf(3), index.getByFullPath("parent/child/leaf").getId());
+            Assert.assertEquals(1, index.getChildren(1).size());
+            Assert.assertEquals(Long.valueOf(4), index.getByFullPath("shared").getId());
+            for(URI request : v3Server.getRequests()) {
+                Assert.assertFalse(request.toString(), request.getPath().endsWith("/subgroups"));
+                Assert.assertFalse(request.toString(), request.toString().contains("top_level_only"));
+            }
+        }
+    }
+
+    @Test
+    public void testRenameLeavesReturnedGroupsUntouched() throws AuthenticationException {
+        // Given
+        GroupIndex index = groupService.crawl(1);
+        Group child = index.getById(2);
+        Group leaf = index.getById(4);
+        Group renamed = new Group();
+        renamed.setId(2L);
+        renamed.setName("Renamed");
+        renamed.setPath("renamed");
+        renamed.setParentId(1L);
+        // When
+        index.update(renamed);
+        // Then
+        Assert.assertEquals("parent/child", child.getFullPath());
+        Assert.assertEquals("parent/child/Leaf", leaf.getFullPath());
+        Assert.assertNull(renamed.getFullPath());
+        Assert.assertEquals("parent/renamed", index.getById(2).getFullPath());
+        Assert.assertEquals("parent/renamed/Leaf", index.getById(4).getFullPath());
+        Assert.assertSame(index.getById(4), index.getByFullPath("parent/renamed/leaf"));
+        Assert.assertNull(index.getByFullPath("parent/child/leaf"));
+    }
+
+    @Test
+    public void testGroupWithoutAPathIsSkipped() {
+        // Given
+        GroupIndex index = new GroupIndex();
+        Group group = new Group();
+        group.setId(7L);
+        group.setName("Nameless");
+        // When
+        boolean added = index.add(group);
+        // Then
+        Assert.assertFalse(added);
+        Assert.assertFalse(index.update(group));
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testRemoveDropsTheSubtree() throws AuthenticationException {
+        // Given
+        GroupIndex index = groupService.crawl(1);
+        // When
+        index.remove(2);
+        // Then
+        Assert.assertEquals(2, index.size());
+        Assert.assertNull(index.getById(4));
+        Assert.assertNull(index.getByFullPath("parent/child"));
+        Assert.assertEquals(1, index.getChildren(1).size());
+    }
+}
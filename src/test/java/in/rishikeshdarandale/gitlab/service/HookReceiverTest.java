@@ -0,0 +1,312 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import com.google.common.base.Strings;
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.GitlabClientRegistry;
+import in.rishikeshdarandale.gitlab.core.ResponseCache;
+import in.rishikeshdarandale.gitlab.core.StubGitlabServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HookReceiver test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class HookReceiverTest {
+    private static final String SECRET_TOKEN = "Valid-secret-token";
+    private final BlockingQueue<HookEvent> events = new LinkedBlockingQueue<>();
+    private StubGitlabServer server;
+    private GitlabClientRegistry registry;
+    private GroupService groupService;
+    private ProjectService projectService;
+    private HookReceiver receiver;
+
+    @Before
+    public void setUp() throws IOException, AuthenticationException {
+        server = new StubGitlabServer(StubGitlabServer.API_V4_PATH)
+                .respond("groups", "[{\"id\":1,\"name\":\"Parent\",\"path\":\"parent\",\"full_path\":\"parent\"}]")
+                .respond("groups/1/subgroups", "[{\"id\":2,\"name\":\"Child\",\"path\":\"child\",\"parent_id\":1}]")
+                .respond("groups/1/projects", "[{\"id\":10}]")
+                .respond("projects", "[{\"id\":10,\"path_with_namespace\":\"parent/old\"}]")
+                .fallback((exchange, apiPath) -> {
+                    if(!apiPath.startsWith("projects/")) {
+                        StubGitlabServer.sendJson(exchange, 200, "[]");
+                    } else {
+                        StubGitlabServer.sendJson(exchange, 404, "{}");
+                    }
+                });
+        registry = new GitlabClientRegistry(StubGitlabServer.connectionService().build());
+        groupService = new GroupService(registry.get(server.getApiUrl(), StubGitlabServer.PRIVATE_TOKEN));
+        projectService = new ProjectService(registry.get(server.getApiUrl(), StubGitlabServer.PRIVATE_TOKEN));
+        groupService.crawl(1);
+        projectService.sync(1);
+        server.getRequests().clear();
+        receiver = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), SECRET_TOKEN)
+                .addListener(new CatalogUpdater(groupService, projectService, 3, 10))
+                .addListener(events::add);
+    }
+
+    @After
+    public void tearDown() {
+        receiver.close();
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    public void testProjectRenameRefreshesTheProjectAndItsNamespace() throws Exception {
+        // Given
+        server.respond("projects/10", "{\"id\":10,\"path_with_namespace\":\"parent/new\"}");
+        server.respond("groups/1/projects", "[{\"id\":10},{\"id\":11}]");
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"project_rename\",\"project_id\":10,"
+                + "\"path_with_namespace\":\"parent/new\",\"old_path_with_namespace\":\"parent/old\"}");
+        // Then
+        Assert.assertEquals(200, status);
+        Assert.assertEquals("project_rename", nextEvent().getName());
+        Assert.assertNull(projectService.getCatalog().getByPathWithNamespace("parent/old"));
+        Assert.assertEquals(Long.valueOf(10), projectService.getCatalog().getByPathWithNamespace("parent/new").getId());
+        Assert.assertEquals(2, groupService.getIndex().getProjects(1).size());
+    }
+
+    @Test
+    public void testFailedEventIsRequeued() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        server.handle("projects/10", (exchange, apiPath) -> {
+            if(calls.incrementAndGet() < 3) {
+                StubGitlabServer.sendJson(exchange, 500, "{}");
+            } else {
+                StubGitlabServer.sendJson(exchange, 200, "{\"id\":10,\"path_with_namespace\":\"parent/new\"}");
+            }
+        });
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"project_update\",\"project_id\":10}");
+        // Then
+        Assert.assertEquals(200, status);
+        nextEvent();
+        long deadline = System.currentTimeMillis() + 5000;
+        while(projectService.getCatalog().getByPathWithNamespace("parent/new") == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(3, calls.get());
+        Assert.assertEquals(Long.valueOf(10), projectService.getCatalog().getByPathWithNamespace("parent/new").getId());
+    }
+
+    @Test
+    public void testFailingEventIsDroppedAfterTheMaximumAttempts() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        server.handle("projects/10", (exchange, apiPath) -> {
+            calls.incrementAndGet();
+            StubGitlabServer.sendJson(exchange, 500, "{}");
+        });
+        // When
+        post(SECRET_TOKEN, "{\"event_name\":\"project_update\",\"project_id\":10}");
+        // Then
+        nextEvent();
+        Thread.sleep(200);
+        Assert.assertEquals(3, calls.get());
+        Assert.assertEquals("parent/old", projectService.getCatalog().getById(10).getPathWithNamespace());
+    }
+
+    @Test
+    public void testEventInvalidatesTheCachedResponses() throws Exception {
+        // Given
+        List<String> conditions = new CopyOnWriteArrayList<>();
+        server.handle("projects/10", (exchange, apiPath) -> {
+            conditions.add(Strings.nullToEmpty(exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH)));
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"v1\"");
+            StubGitlabServer.sendJson(exchange, 200, "{\"id\":10,\"path_with_namespace\":\"parent/old\"}");
+        });
+        registry.getConnectionService().setResponseCache(new ResponseCache(10, 1, TimeUnit.MINUTES));
+        projectService.refresh(10);
+        projectService.refresh(10);
+        // When
+        post(SECRET_TOKEN, "{\"event_name\":\"project_update\",\"project_id\":10}");
+        // Then
+        nextEvent();
+        Assert.assertEquals(Arrays.asList("", "\"v1\"", ""), conditions);
+    }
+
+    @Test
+    public void testProjectDestroyDropsTheProject() throws Exception {
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"project_destroy\",\"project_id\":10,"
+                + "\"path_with_namespace\":\"parent/old\"}");
+        // Then
+        Assert.assertEquals(200, status);
+        nextEvent();
+        Assert.assertNull(projectService.getCatalog().getById(10));
+        Assert.assertFalse(server.getRequests().stream().anyMatch(uri -> uri.getPath().endsWith("/projects/10")));
+    }
+
+    @Test
+    public void testGroupRenameRekeysTheSubtree() throws Exception {
+        // Given
+        server.respond("groups/1",
+                "{\"id\":1,\"name\":\"Renamed\",\"path\":\"renamed\",\"full_path\":\"renamed\"}");
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"group_rename\",\"group_id\":1,"
+                + "\"full_path\":\"renamed\",\"old_full_path\":\"parent\"}");
+        // Then
+        Assert.assertEquals(200, status);
+        HookEvent event = nextEvent();
+        Assert.assertEquals("parent", event.getOldPath());
+        Assert.assertEquals(2, groupService.getIndex().size());
+        Assert.assertNull(groupService.findGroup("parent"));
+        Assert.assertNull(groupService.findGroup("parent/child"));
+        Assert.assertEquals("Renamed", groupService.findGroup("renamed").getName());
+        Assert.assertEquals(Long.valueOf(2), groupService.findGroup("renamed/child").getId());
+        Assert.assertEquals(1, groupService.getIndex().getProjects(1).size());
+    }
+
+    @Test
+    public void testSubgroupCreateIndexesTheGroup() throws Exception {
+        // Given
+        server.respond("groups/3", "{\"id\":3,\"name\":\"New\",\"path\":\"new\",\"parent_id\":2}");
+        server.respond("groups/3/members", "[{\"id\":5,\"username\":\"root\",\"access_level\":50}]");
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"subgroup_create\",\"group_id\":3,"
+                + "\"full_path\":\"parent/child/new\"}");
+        // Then
+        Assert.assertEquals(200, status);
+        nextEvent();
+        Assert.assertEquals(Long.valueOf(3), groupService.findGroup("parent/child/new").getId());
+        Assert.assertEquals(3, groupService.getIndex().getChildren(2).get(0).getId().longValue());
+        Assert.assertEquals("root", groupService.getIndex().getMembers(3).get(0).getUsername());
+    }
+
+    @Test
+    public void testGroupDestroyDropsTheSubtree() throws Exception {
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"group_destroy\",\"group_id\":1}");
+        // Then
+        Assert.assertEquals(200, status);
+        nextEvent();
+        Assert.assertEquals(0, groupService.getIndex().size());
+    }
+
+    @Test
+    public void testMemberChangeRefreshesTheMembers() throws Exception {
+        // Given
+        server.respond("groups/2/members", "[{\"id\":5,\"username\":\"root\",\"access_level\":50}]");
+        // When
+        int status = post(SECRET_TOKEN, "{\"event_name\":\"user_add_to_group\",\"group_id\":2,\"user_id\":5}");
+        // Then
+        Assert.assertEquals(200, status);
+        nextEvent();
+        Assert.assertEquals("root", groupService.getIndex().getMembers(2).get(0).getUsername());
+    }
+
+    @Test
+    public void testRefusesHooksWithoutTheSecretToken() throws Exception {
+        // When
+        int status = post("Invalid-secret-token", "{\"event_name\":\"group_destroy\",\"group_id\":1}");
+        // Then
+        Assert.assertEquals(401, status);
+        Assert.assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, groupService.getIndex().size());
+    }
+
+    @Test
+    public void testRefusesMalformedHooks() throws Exception {
+        // When
+        int status = post(SECRET_TOKEN, "[\"not an event\"]");
+        // Then
+        Assert.assertEquals(400, status);
+        Assert.assertEquals(400, post(SECRET_TOKEN, "{\"event_name\":"));
+    }
+
+    @Test
+    public void testRefusesHooksLargerThanTheMaximumBodySize() throws Exception {
+        // Given
+        StringBuilder large = new StringBuilder("{\"event_name\":\"group_destroy\",\"group_id\":1,\"padding\":\"");
+        while(large.length() < 2048) {
+            large.append("padding");
+        }
+        String body = large.append("\"}").toString();
+        try (HookReceiver limited = new HookReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                SECRET_TOKEN, 1024)) {
+            limited.addListener(events::add);
+            // When
+            int status = post(limited, SECRET_TOKEN, body, false);
+            int chunkedStatus = post(limited, SECRET_TOKEN, body, true);
+            // Then
+            Assert.assertEquals(413, status);
+            Assert.assertEquals(413, chunkedStatus);
+            Assert.assertEquals(200, post(limited, SECRET_TOKEN, "{\"event_name\":\"group_destroy\"}", true));
+            Assert.assertEquals("group_destroy", nextEvent().getName());
+            Assert.assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private HookEvent nextEvent() throws InterruptedException {
+        HookEvent event = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(event);
+        return event;
+    }
+
+    private int post(String token, String body) throws IOException {
+        return post(receiver, token, body, false);
+    }
+
+    private int post(HookReceiver receiver, String token, String body, boolean chunked) throws IOException {
+        InetSocketAddress address = receiver.getAddress();
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + address.getPort()
+                + HookReceiver.PATH).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            if(chunked) {
+                connection.setChunkedStreamingMode(256);
+            }
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty(HookReceiver.TOKEN_HEADER, token);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  The MIT License (MIT)
+ *  Copyright (c) 2016 Rishikesh Darandale
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ *  the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ *  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ *  of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED
+ *  TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ *  THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ *  DEALINGS IN THE SOFTWARE.
+ */
+package in.rishikeshdarandale.gitlab.service;
+
+import in.rishikeshdarandale.gitlab.core.AuthenticationException;
+import in.rishikeshdarandale.gitlab.core.GitlabClientRegistry;
+import in.rishikeshdarandale.gitlab.core.StubGitlabServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * ProjectService test class
+ *
+ * @author Rishikesh Darandale
+ */
+public class ProjectServiceTest {
+    private static final String ALL_PROJECTS =
+            "[{\"id\":1,\"path_with_namespace\":\"group/one\",\"last_activity_at\":\"2016-06-30T10:00:00.000Z\"},"
+            + "{\"id\":2,\"path_with_namespace\":\"group/two\",\"last_activity_at\":\"2016-06-25T10:00:00.000Z\"}]";
+    private static final String CHANGED_PROJECTS =
+            "[{\"id\":2,\"path_with_namespace\":\"group/renamed\",\"last_activity_at\":\"2016-07-02T10:00:00.000Z\"},"
+            + "{\"id\":3,\"path_with_namespace\":\"group/new\",\"last_activity_at\":\"2016-07-01T10:00:00.000Z\"}]";
+    private StubGitlabServer server;
+    private GitlabClientRegistry registry;
+    private ProjectService projectService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubGitlabServer().handle("projects", (exchange, apiPath) -> StubGitlabServer.sendJson(exchange,
+                200, exchange.getRequestURI().getQuery().contains(ProjectService.LAST_ACTIVITY_AFTER_PARAM)
+                        ? CHANGED_PROJECTS : ALL_PROJECTS));
+        registry = new GitlabClientRegistry(StubGitlabServer.connectionService().build());
+        projectService = new ProjectService(registry.get(server.getApiUrl(), StubGitlabServer.PRIVATE_TOKEN));
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    public void testDeltaSyncMergesChangedProjects() throws AuthenticationException {
+        // Given
+        long startedAt = System.currentTimeMillis();
+        Assert.assertEquals(2, projectService.sync(2));
+        Assert.assertFalse(query(0).contains(ProjectService.LAST_ACTIVITY_AFTER_PARAM));
+        Assert.assertTrue(query(0).contains("order_by=id"));
+        Assert.assertTrue(query(0).contains("sort=asc"));
+        Date watermark = projectService.getCatalog().getWatermark();
+        Assert.assertTrue(watermark.getTime() >= startedAt && watermark.getTime() <= System.currentTimeMillis());
+        // When
+        int synced = projectService.sync(2);
+        // Then
+        Assert.assertEquals(2, synced);
+        Assert.assertTrue(query(1).contains("last_activity_after=" + DateTimeFormatter.ISO_INSTANT.format(
+                watermark.toInstant().minus(1, ChronoUnit.MINUTES))));
+        Assert.assertTrue(query(1).contains("order_by=id"));
+        ProjectCatalog catalog = projectService.getCatalog();
+        Assert.assertEquals(3, catalog.size());
+        Assert.assertEquals(Long.valueOf(2), catalog.getByPathWithNamespace("group/renamed").getId());
+        Assert.assertNull(catalog.getByPathWithNamespace("group/two"));
+        Assert.assertFalse(catalog.getWatermark().before(watermark));
+    }
+
+    @Test
+    public void testRefreshDoesNotMoveTheWatermark() throws AuthenticationException {
+        // Given
+        server.respond("projects/4", "{\"id\":4,\"path_with_namespace\":\"group/hooked\","
+                + "\"last_activity_at\":\"2099-08-01T10:00:00.000Z\"}");
+        projectService.sync(1);
+        Date watermark = projectService.getCatalog().getWatermark();
+        // When
+        projectService.refresh(4);
+        // Then
+        ProjectCatalog catalog = projectService.getCatalog();
+        Assert.assertEquals(Long.valueOf(4), catalog.getByPathWithNamespace("group/hooked").getId());
+        Assert.assertEquals(watermark, catalog.getWatermark());
+    }
+
+    private String query(int request) {
+        return server.getRequests().get(request).getQuery();
+    }
+}